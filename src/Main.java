@@ -4,6 +4,11 @@ import jade.core.Runtime;
 import jade.wrapper.AgentContainer;
 import jade.wrapper.AgentController;
 import com.traffic.environment.Environment;
+import com.traffic.environment.SimulationClock;
+import com.traffic.environment.VirtualThreads;
+import com.traffic.agents.PartitionAgent;
+import com.traffic.logic.RegionMap;
+import com.traffic.environment.WorldFrame;
 import com.traffic.model.*;
 import com.sun.net.httpserver.HttpServer;
 import com.sun.net.httpserver.HttpExchange;
@@ -55,32 +60,119 @@ public class Main {
                 i1.addOutgoing(r3Curve);
                 env.addIntersection(i1);
 
+                // "--region <i> <k> [mainHost]": this JVM simulates region i of k. Region 0 hosts
+                // the main container; the others join it as peripheral containers.
+                int region = 0;
+                int regionCount = 1;
+                String mainHost = "localhost";
+                for (int a = 0; a < args.length; a++) {
+                        if (args[a].equals("--region") && a + 2 < args.length) {
+                                region = Integer.parseInt(args[a + 1]);
+                                regionCount = Integer.parseInt(args[a + 2]);
+                                if (a + 3 < args.length && !args[a + 3].startsWith("--"))
+                                        mainHost = args[a + 3];
+                        }
+                }
+                boolean partitioned = regionCount > 1;
+                if (partitioned)
+                        env.setPartition(RegionMap.byStrips(env.getIntersections(), env.getRoads(), regionCount),
+                                        region);
+
+                // Publish a consistent world frame every tick for readers. With
+                // -Dtraffic.engine=phased all agents are stepped in lock-step instead and the
+                // engine publishes the frames itself. "--headless [days]" steps the engine on a
+                // simulated clock as fast as possible, without the dashboard.
+                boolean headless = args.length > 0 && args[0].equals("--headless");
+                int cores = java.lang.Runtime.getRuntime().availableProcessors();
+                if (headless) {
+                        env.getClock().setStepped(true);
+                        env.startEngine(cores, 0);
+                } else if ("phased".equals(System.getProperty("traffic.engine"))) {
+                        env.startEngine(cores, SimulationClock.TICK_MILLIS);
+                } else {
+                        env.startFramePublisher(SimulationClock.TICK_MILLIS);
+                        // -Dtraffic.agentThreads=virtual: agent ticks park on virtual threads (carrier
+                        // pool bounded by -Djdk.virtualThreadScheduler.parallelism)
+                        boolean virtual = "virtual".equals(System.getProperty("traffic.agentThreads"));
+                        if (virtual && !VirtualThreads.isAvailable())
+                                System.out.println("Virtual threads need JDK 21+, agents tick on JADE threads.");
+                        env.setVirtualTicks(virtual && VirtualThreads.isAvailable());
+                }
+
                 // 2. Start API Server (Modern Dashboard Bridge)
-                System.out.println("Starting API Bridge initialization...");
-                startApiServer(env);
-                System.out.println("Main initialization complete.");
+                if (!headless) {
+                        System.out.println("Starting API Bridge initialization...");
+                        startApiServer(env, 8085 + region);
+                }
+                System.out.println("Main initialization complete (seed " + env.getRandomStreams().getSeed()
+                                + ", rerun with -Dtraffic.seed=...).");
 
                 // 3. Initialize JADE
                 Runtime rt = Runtime.instance();
                 Profile p = new ProfileImpl();
-                AgentContainer mainContainer = rt.createMainContainer(p);
+                AgentContainer mainContainer;
+                if (partitioned && region > 0) {
+                        p.setParameter(Profile.MAIN_HOST, mainHost);
+                        p.setParameter(Profile.CONTAINER_NAME, "Region-" + region);
+                        mainContainer = rt.createAgentContainer(p);
+                } else {
+                        mainContainer = rt.createMainContainer(p);
+                }
                 env.setMainContainer(mainContainer);
+                String suffix = partitioned ? "-" + region : "";
 
                 try {
-                        mainContainer.createNewAgent("TL_R1_I1", "com.traffic.agents.TrafficLightAgent",
-                                        new Object[] { "290", "300", "R1" }).start();
-                        mainContainer.createNewAgent("Spawner", "com.traffic.agents.VehicleSpawnerAgent", null)
+                        if (env.ownsRoad("R1"))
+                                mainContainer.createNewAgent("TL_R1_I1", "com.traffic.agents.TrafficLightAgent",
+                                                new Object[] { "290", "300", "R1" }).start();
+                        mainContainer.createNewAgent("Spawner" + suffix, "com.traffic.agents.VehicleSpawnerAgent", null)
                                         .start();
-                        mainContainer.createNewAgent("Metrics", "com.traffic.agents.MetricsAgent", null).start();
+                        mainContainer.createNewAgent("Metrics" + suffix, "com.traffic.agents.MetricsAgent", null)
+                                        .start();
+                        if (partitioned)
+                                mainContainer.createNewAgent(PartitionAgent.NAME_PREFIX + region,
+                                                "com.traffic.agents.PartitionAgent", null).start();
                 } catch (Exception e) {
                         e.printStackTrace();
                 }
+
+                if (headless)
+                        runHeadless(env, args.length > 1 ? Double.parseDouble(args[1]) : 1.0);
+        }
+
+        /**
+         * Blocks until the given number of simulated days has elapsed, reporting once
+         * per simulated hour, then shuts the JVM down.
+         */
+        private static void runHeadless(Environment env, double days) {
+                SimulationClock clock = env.getClock();
+                long end = (long) (days * 24 * SimulationClock.MILLIS_PER_HOUR);
+                long wallStart = System.currentTimeMillis();
+                long nextReport = SimulationClock.MILLIS_PER_HOUR;
+                try {
+                        while (clock.now() < end) {
+                                if (clock.now() >= nextReport) {
+                                        System.out.println("Headless: hour "
+                                                        + (nextReport / SimulationClock.MILLIS_PER_HOUR)
+                                                        + ", steps " + env.getEngine().getStepCount()
+                                                        + ", vehicles " + env.getFrame().size());
+                                        nextReport += SimulationClock.MILLIS_PER_HOUR;
+                                }
+                                Thread.sleep(10);
+                        }
+                } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                }
+                System.out.println("Headless run finished: " + days + " day(s) in "
+                                + (System.currentTimeMillis() - wallStart) / 1000.0 + "s wall time");
+                System.exit(0);
         }
 
-        private static void startApiServer(Environment env) {
+        private static void startApiServer(Environment env, int port) {
                 try {
-                        HttpServer server = HttpServer.create(new InetSocketAddress(8085), 0);
-                        server.setExecutor(java.util.concurrent.Executors.newCachedThreadPool());
+                        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+                        // SSE handlers sleep between pushes, so each client gets a cheap virtual thread (JDK 21+)
+                        server.setExecutor(VirtualThreads.newPerTaskExecutor());
 
                         // Endpoint: Simulation State (SSE)
                         server.createContext("/api/stream", exchange -> {
@@ -190,33 +282,34 @@ public class Main {
                         server.start();
                         System.out.println("=================================================");
                         System.out.println("!!! DIGITAL TWIN API BRIDGE IS LIVE !!!");
-                        System.out.println("Listening on: http://localhost:8085");
-                        System.out.println("Map Data: http://localhost:8085/api/map");
-                        System.out.println("Live Stream: http://localhost:8085/api/stream");
+                        System.out.println("Listening on: http://localhost:" + port);
+                        System.out.println("Map Data: http://localhost:" + port + "/api/map");
+                        System.out.println("Live Stream: http://localhost:" + port + "/api/stream");
                         System.out.println("=================================================");
                 } catch (java.net.BindException be) {
-                        System.err.println("!!! CRITICAL: PORT 8085 IS BLOCKED !!!");
+                        System.err.println("!!! CRITICAL: PORT " + port + " IS BLOCKED !!!");
                         System.err.println("The API Bridge could NOT start. Visualization will be blank.");
-                        System.err.println("Please kill any process using port 8085 and restart.");
+                        System.err.println("Please kill any process using port " + port + " and restart.");
                 } catch (Exception e) {
                         e.printStackTrace();
                 }
         }
 
         private static String serializeState(Environment env) {
+                WorldFrame frame = env.getFrame();
                 StringBuilder sb = new StringBuilder("{ \"vehicles\": [");
-                sb.append(env.getVehiclePositions().entrySet().stream().map(entry -> {
-                        String id = entry.getKey();
-                        Position pos = entry.getValue();
-                        String thought = env.getVehicleThought(id);
-                        String pathJson = env.getVehiclePath(id).stream()
+                for (int i = 0; i < frame.size(); i++) {
+                        String pathJson = frame.getPath(i).stream()
                                         .map(p -> String.format(java.util.Locale.US, "[%f, %f]", p.getX(), p.getY()))
                                         .collect(Collectors.joining(", ", "[", "]"));
 
-                        return String.format(java.util.Locale.US,
+                        if (i > 0)
+                                sb.append(",");
+                        sb.append(String.format(java.util.Locale.US,
                                         "{ \"id\": \"%s\", \"x\": %.2f, \"y\": %.2f, \"lane\": %d, \"road\": \"%s\", \"thought\": \"%s\", \"path\": %s }",
-                                        id, pos.getX(), pos.getY(), 0, env.getVehicleRoadId(id), thought, pathJson);
-                }).collect(Collectors.joining(",")));
+                                        frame.getName(i), frame.getX(i), frame.getY(i), frame.getLane(i),
+                                        frame.getRoadId(i), frame.getThought(i), pathJson));
+                }
                 sb.append("] }");
                 return sb.toString();
         }
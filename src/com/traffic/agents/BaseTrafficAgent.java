@@ -1,52 +1,133 @@
 package com.traffic.agents;
 
+import jade.core.AID;
 import jade.core.Agent;
 import jade.core.behaviours.TickerBehaviour;
 import jade.lang.acl.ACLMessage;
 import com.traffic.model.Position;
+import com.traffic.model.TrafficEvent;
 import com.traffic.environment.Environment;
+import com.traffic.environment.SimulationClock;
+import com.traffic.environment.SimulationEngine;
+import com.traffic.environment.VirtualThreads;
+import java.util.SplittableRandom;
 
 public abstract class BaseTrafficAgent extends Agent {
     protected Position position;
     protected double speed;
     protected double direction; // in radians
     protected double perceptionRadius;
+    protected SplittableRandom random; // this agent's own stream, see RandomStreams
+    private volatile boolean virtualTicking = false;
+    private Thread tickThread;
 
     @Override
     protected void setup() {
+        Environment.getInstance().getEvents().register(getLocalName());
+        random = Environment.getInstance().getRandomStreams().forAgent(getLocalName());
         initializeProperties();
 
-        addBehaviour(new TickerBehaviour(this, 50) {
+        SimulationEngine engine = Environment.getInstance().getEngine();
+        if (engine != null) {
+            engine.register(new EngineParticipant());
+            return;
+        }
+        if (Environment.getInstance().isVirtualTicks()) {
+            virtualTicking = true;
+            tickThread = VirtualThreads.start("tick-" + getLocalName(), this::runVirtualTicks);
+            return;
+        }
+
+        addBehaviour(new TickerBehaviour(this, SimulationClock.TICK_MILLIS) {
             @Override
             protected void onTick() {
-                try {
-                    if (Environment.getInstance().isPaused())
-                        return;
-
-                    perceive();
-                    decide();
-                    // Synchronize state with environment
-                    if (position != null) {
-                        Environment.getInstance().updateVehicleState(BaseTrafficAgent.this.getAID().getLocalName(),
-                                position, null, speed,
-                                null, null);
-                    }
-
-                    ACLMessage msg = receive();
-                    while (msg != null) {
-                        handleMessage(msg);
-                        msg = receive();
-                    }
-                } catch (Throwable t) {
-                    System.err.println(
-                            "CRITICAL ERROR in Agent " + BaseTrafficAgent.this.getAID().getLocalName() + ": "
-                                    + t.getMessage());
-                    t.printStackTrace();
-                }
+                tick();
             }
         });
     }
 
+    private void tick() {
+        try {
+            if (Environment.getInstance().isPaused())
+                return;
+
+            perceive();
+            decideAndSync();
+            deliverMessages();
+        } catch (Throwable t) {
+            System.err.println(
+                    "CRITICAL ERROR in Agent " + getAID().getLocalName() + ": " + t.getMessage());
+            t.printStackTrace();
+        }
+    }
+
+    /**
+     * Tick loop for virtual-thread hosting: sleeping parks the virtual thread and
+     * frees its carrier, so idle agents cost no platform thread time.
+     */
+    private void runVirtualTicks() {
+        long period = SimulationClock.TICK_MILLIS * 1_000_000L;
+        long next = System.nanoTime();
+        while (virtualTicking) {
+            tick();
+            next += period;
+            long wait = next - System.nanoTime();
+            if (wait <= 0) {
+                next = System.nanoTime(); // fell behind; don't burst to catch up
+                continue;
+            }
+            try {
+                Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void decideAndSync() {
+        decide();
+        // Synchronize state with environment
+        if (position != null) {
+            Environment.getInstance().syncAgentState(getAID().getLocalName(), position, speed);
+        }
+    }
+
+    private void deliverMessages() {
+        // Local events first, as one batch, then whatever arrived over ACL
+        for (TrafficEvent event : Environment.getInstance().getEvents().drain(getLocalName()))
+            handleEvent(event);
+        ACLMessage msg = receive();
+        while (msg != null) {
+            handleMessage(msg);
+            msg = receive();
+        }
+    }
+
+    /**
+     * Adapter that lets the lock-step engine drive this agent phase by phase.
+     */
+    private class EngineParticipant implements SimulationEngine.Participant {
+        @Override
+        public String getName() {
+            return getAID().getLocalName();
+        }
+
+        @Override
+        public void perceivePhase() {
+            perceive();
+        }
+
+        @Override
+        public void decidePhase() {
+            decideAndSync();
+        }
+
+        @Override
+        public void deliverPhase() {
+            deliverMessages();
+        }
+    }
+
     protected abstract void initializeProperties();
 
     protected abstract void perceive();
@@ -55,8 +136,59 @@ public abstract class BaseTrafficAgent extends Agent {
 
     protected abstract void decide();
 
+    /**
+     * Handles an event posted on the in-process bus. Agents that accept events
+     * over ACL as well should route both to the same logic.
+     */
+    protected void handleEvent(TrafficEvent event) {
+    }
+
+    /**
+     * Delivers the event through the in-process bus, falling back to an ACL
+     * message (content = event type) when the map is partitioned and the
+     * recipient may live in another container.
+     */
+    protected void sendEvent(String recipient, TrafficEvent event) {
+        Environment env = Environment.getInstance();
+        if (env.getEvents().post(recipient, event) || env.getRegionMap() == null)
+            return;
+        ACLMessage msg = new ACLMessage(
+                event.type == TrafficEvent.Type.PRIORITY_PASS ? ACLMessage.REQUEST : ACLMessage.INFORM);
+        msg.setContent(event.type.name());
+        msg.addReceiver(new AID(recipient, AID.ISLOCALNAME));
+        send(msg);
+    }
+
+    /**
+     * Stops the virtual-thread tick loop and waits for an in-flight tick to
+     * finish, so teardown never races a tick. Subclasses call it before
+     * releasing what their ticks use; safe to call more than once.
+     */
+    protected final void stopTicking() {
+        virtualTicking = false;
+        Thread thread = tickThread;
+        if (thread == null || thread == Thread.currentThread())
+            return;
+        thread.interrupt();
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
     @Override
     protected void takeDown() {
+        stopTicking();
+        Environment.getInstance().getEvents().unregister(this.getAID().getLocalName());
+        SimulationEngine engine = Environment.getInstance().getEngine();
+        if (engine != null)
+            engine.unregister(this.getAID().getLocalName());
         Environment.getInstance().removeVehicle(this.getAID().getLocalName());
         super.takeDown();
     }
@@ -1,8 +1,7 @@
 package com.traffic.agents;
 
-import jade.core.AID;
-import jade.lang.acl.ACLMessage;
 import com.traffic.environment.Environment;
+import com.traffic.model.TrafficEvent;
 
 public class EmergencyVehicleAgent extends VehicleAgent {
 
@@ -10,28 +9,26 @@ public class EmergencyVehicleAgent extends VehicleAgent {
     protected void initializeProperties() {
         super.initializeProperties();
         // Priority vehicles are faster and safer
-        perceptionRadius *= 1.5;
-        currentMaxSpeed *= 1.3;
+        vehicle.perceptionRadius *= 1.5;
+        vehicle.currentMaxSpeed *= 1.3;
+        perceptionRadius = vehicle.perceptionRadius;
     }
 
     @Override
     protected void decide() {
         super.decide();
         // Periodically request priority from traffic lights
-        if (System.currentTimeMillis() % 5000 < 100) {
+        if (Environment.getInstance().getClock().now() % 5000 < 100) {
             requestPriority();
         }
-        currentAction = "EMERGENCY RESPONSE";
+        vehicle.currentAction = "EMERGENCY RESPONSE";
     }
 
     private void requestPriority() {
-        ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
-        msg.setContent("PRIORITY_PASS");
         // Find nearest light
         String light = Environment.getInstance().getNearestLight(position, 300.0);
-        if (light != null) {
-            msg.addReceiver(new AID(light, AID.ISLOCALNAME));
-            send(msg);
-        }
+        if (light != null)
+            sendEvent(light,
+                    new TrafficEvent(TrafficEvent.Type.PRIORITY_PASS, getLocalName(), vehicle.currentRoadId));
     }
 }
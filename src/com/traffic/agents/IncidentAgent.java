@@ -1,9 +1,10 @@
 package com.traffic.agents;
 
-import jade.core.behaviours.WakerBehaviour;
 import jade.lang.acl.ACLMessage;
 import com.traffic.environment.Environment;
+import com.traffic.logic.RoadGraph;
 import com.traffic.model.Position;
+import com.traffic.model.TrafficEvent;
 
 public class IncidentAgent extends BaseTrafficAgent {
     private String roadId;
@@ -29,14 +30,28 @@ public class IncidentAgent extends BaseTrafficAgent {
         perceptionRadius = 0;
 
         this.incident = new Environment.Incident(roadId, position, duration);
+        // Expiry is driven by the environment's shared queue rather than a waker per incident
+        this.incident.onExpire = this::doDelete;
         Environment.getInstance().addIncident(this.incident);
+        warnApproachingVehicles();
+    }
 
-        addBehaviour(new WakerBehaviour(this, duration) {
-            @Override
-            protected void onWake() {
-                myAgent.doDelete();
-            }
-        });
+    /**
+     * Tells vehicles still able to avoid the incident (those heading into the
+     * intersection the blocked road leaves from) to reroute.
+     */
+    private void warnApproachingVehicles() {
+        Environment env = Environment.getInstance();
+        RoadGraph graph = env.getRoadGraph();
+        int road = graph.getRoadIndex(roadId);
+        int upstream = road < 0 ? -1 : graph.getUpstream(road);
+        if (upstream < 0)
+            return;
+        TrafficEvent hazard = new TrafficEvent(TrafficEvent.Type.HAZARD_AHEAD, getLocalName(), roadId);
+        for (int k = graph.inStart(upstream); k < graph.inEnd(upstream); k++) {
+            for (String vehicle : env.getVehiclesOnRoad(graph.getRoadId(graph.inRoad(k))))
+                sendEvent(vehicle, hazard);
+        }
     }
 
     @Override
@@ -53,6 +68,7 @@ public class IncidentAgent extends BaseTrafficAgent {
 
     @Override
     protected void takeDown() {
+        stopTicking();
         if (incident != null) {
             Environment.getInstance().removeIncident(this.incident);
         }
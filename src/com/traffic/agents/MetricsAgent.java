@@ -1,32 +1,56 @@
 package com.traffic.agents;
 
-import jade.core.Agent;
-import jade.core.behaviours.TickerBehaviour;
+import jade.lang.acl.ACLMessage;
 import com.traffic.environment.Environment;
+import com.traffic.logic.RouteCache;
 import com.traffic.model.RoadSegment;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
-public class MetricsAgent extends Agent {
+/**
+ * Samples congestion every {@link #SAMPLE_MILLIS} of simulated time, so the
+ * historical congestion fed to routing does not depend on how fast the
+ * simulation runs.
+ */
+public class MetricsAgent extends BaseTrafficAgent {
+    private static final long SAMPLE_MILLIS = 5000;
     private long startTime;
+    private long nextSampleAt;
     private int totalVehiclesSpawned = 0;
     private Map<String, Double> roadCongestionHistory = new HashMap<>();
     private final double ALPHA = 0.2;
 
     @Override
-    protected void setup() {
-        startTime = System.currentTimeMillis();
+    protected void initializeProperties() {
+        position = null; // metrics have no place on the map
+        speed = 0;
+        direction = 0;
+        perceptionRadius = 0;
+        startTime = Environment.getInstance().getClock().now();
+        nextSampleAt = startTime + SAMPLE_MILLIS;
         System.out.println("MetricsAgent started.");
+    }
+
+    @Override
+    protected void perceive() {
+    }
 
-        addBehaviour(new TickerBehaviour(this, 5000) {
-            @Override
-            protected void onTick() {
-                collectMetrics();
-                reportMetrics();
-            }
-        });
+    @Override
+    protected void handleMessage(ACLMessage msg) {
+    }
+
+    @Override
+    protected void decide() {
+        long now = Environment.getInstance().getClock().now();
+        if (now < nextSampleAt)
+            return;
+        nextSampleAt += SAMPLE_MILLIS;
+        if (nextSampleAt <= now)
+            nextSampleAt = now + SAMPLE_MILLIS; // the clock jumped; don't replay missed samples
+        collectMetrics();
+        reportMetrics();
     }
 
     private void collectMetrics() {
@@ -42,8 +66,10 @@ public class MetricsAgent extends Agent {
     }
 
     private void reportMetrics() {
-        long uptime = (System.currentTimeMillis() - startTime) / 1000;
-        System.out.println("--- METRICS [" + uptime + "s] Active: " + totalVehiclesSpawned);
+        long uptime = (Environment.getInstance().getClock().now() - startTime) / 1000;
+        RouteCache routes = Environment.getInstance().getRouteCache();
+        System.out.println("--- METRICS [" + uptime + "s] Active: " + totalVehiclesSpawned + " Route cache: "
+                + Math.round(routes.getHitRate() * 100) + "% hits (" + routes.size() + " routes)");
         try (FileWriter writer = new FileWriter("metrics.csv", true)) {
             writer.write(uptime + "," + totalVehiclesSpawned + "\n");
         } catch (IOException e) {
@@ -0,0 +1,187 @@
+package com.traffic.agents;
+
+import jade.core.AID;
+import jade.lang.acl.ACLMessage;
+import com.traffic.environment.Environment;
+import com.traffic.environment.WorldFrame;
+import com.traffic.logic.RegionMap;
+import com.traffic.model.Position;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Links this container's region to its neighbours. Every tick it forwards
+ * vehicles that crossed into another region (handoffs) and mirrors the vehicles
+ * on its border roads to the neighbouring regions (ghost zones); in the other
+ * direction it re-creates handed-off vehicles locally, as the same kind of
+ * agent or inside a population, and keeps the ghosts it receives in the local
+ * environment shard.
+ */
+public class PartitionAgent extends BaseTrafficAgent {
+    public static final String NAME_PREFIX = "Partition-";
+    private static final String HANDOFF = "HANDOFF";
+    private static final String GHOSTS = "GHOSTS";
+
+    private final Map<Integer, Set<String>> ghostsByRegion = new HashMap<>();
+    private int handoffsReceived;
+    // Vehicles that arrive from a population, started on the first such handoff
+    private Queue<VehicleController> population;
+
+    @Override
+    protected void initializeProperties() {
+        position = null;
+        speed = 0;
+        direction = 0;
+        perceptionRadius = 0;
+    }
+
+    @Override
+    protected void perceive() {
+    }
+
+    @Override
+    protected void decide() {
+        Environment env = Environment.getInstance();
+        RegionMap map = env.getRegionMap();
+        if (map == null)
+            return;
+
+        // 1. Vehicles that left this region
+        Environment.Handoff handoff;
+        while ((handoff = env.pollHandoff()) != null) {
+            StringBuilder content = new StringBuilder(HANDOFF).append(';').append(handoff.name).append(';')
+                    .append(handoff.agentClass == null ? "" : handoff.agentClass);
+            for (Object arg : handoff.args)
+                content.append(';').append(arg == null ? "" : arg);
+            send(handoff.targetRegion, ACLMessage.REQUEST, content.toString());
+        }
+
+        // 2. Ghost zones: our vehicles on border roads, one message per neighbour (empty clears)
+        Map<Integer, StringBuilder> ghosts = new HashMap<>();
+        for (int neighbour : map.getNeighbourRegions(env.getRegion()))
+            ghosts.put(neighbour, new StringBuilder(GHOSTS).append(';').append(env.getRegion()));
+        WorldFrame frame = env.getFrame();
+        for (int i = 0; i < frame.size(); i++) {
+            String roadId = frame.getRoadId(i);
+            if (roadId == null || !map.isBorderRoad(roadId) || !env.ownsRoad(roadId))
+                continue;
+            for (int neighbour : map.getNeighbourRegions(roadId)) {
+                StringBuilder out = ghosts.get(neighbour);
+                if (out != null) {
+                    out.append(';').append(frame.getName(i)).append(',').append(frame.getX(i)).append(',')
+                            .append(frame.getY(i)).append(',').append(frame.getZ(i)).append(',')
+                            .append(frame.getLane(i)).append(',').append(roadId).append(',')
+                            .append(frame.getProgress(i)).append(',').append(frame.getSpeed(i));
+                }
+            }
+        }
+        for (Map.Entry<Integer, StringBuilder> e : ghosts.entrySet())
+            send(e.getKey(), ACLMessage.INFORM, e.getValue().toString());
+    }
+
+    @Override
+    protected void handleMessage(ACLMessage msg) {
+        String content = msg.getContent();
+        if (content == null)
+            return;
+        String[] parts = content.split(";", -1);
+        if (parts[0].equals(HANDOFF))
+            receiveHandoff(parts);
+        else if (parts[0].equals(GHOSTS))
+            receiveGhosts(parts);
+    }
+
+    private void receiveHandoff(String[] parts) {
+        // parts: HANDOFF, name, agentClass (empty inside a population), x, y, roadId, profile, lane,
+        // destination, speed, detour
+        String name = parts[1];
+        String agentClass = parts[2];
+        Object[] args = new Object[parts.length - 3];
+        for (int i = 3; i < parts.length; i++)
+            args[i - 3] = parts[i].isEmpty() ? null : parts[i];
+        VehiclePool pool = VehiclePool.getInstance();
+        try {
+            if (agentClass.isEmpty()) {
+                VehicleController recycled = pool.acquireController();
+                if (recycled != null)
+                    recycled.reset(args);
+                population().add(recycled != null ? recycled : new VehicleController(localName(name), args));
+                return;
+            }
+            if (!VehicleAgent.class.isAssignableFrom(Class.forName(agentClass)))
+                throw new IllegalArgumentException("not a vehicle agent: " + agentClass);
+            // Only plain vehicles are interchangeable with a parked agent
+            VehicleAgent recycled = agentClass.equals(VehicleAgent.class.getName()) ? pool.acquireAgent() : null;
+            if (recycled != null)
+                recycled.recycle(args);
+            else
+                getContainerController().createNewAgent(localName(name), agentClass, args).start();
+        } catch (Exception e) {
+            System.err.println("FAILED TO ACCEPT HANDOFF: " + name);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * A vehicle can cross into this region more than once, so every arrival gets
+     * a name of its own.
+     */
+    private String localName(String name) {
+        int marker = name.indexOf('~');
+        return (marker < 0 ? name : name.substring(0, marker)) + "~" + Environment.getInstance().getRegion() + "~"
+                + (++handoffsReceived);
+    }
+
+    private Queue<VehicleController> population() throws Exception {
+        if (population == null) {
+            Queue<VehicleController> arrivals = new ConcurrentLinkedQueue<>();
+            getContainerController().createNewAgent("Handoffs-" + Environment.getInstance().getRegion(),
+                    "com.traffic.agents.VehiclePopulationAgent", new Object[] { arrivals }).start();
+            population = arrivals;
+        }
+        return population;
+    }
+
+    private void receiveGhosts(String[] parts) {
+        Environment env = Environment.getInstance();
+        int from = Integer.parseInt(parts[1]);
+        Set<String> previous = ghostsByRegion.getOrDefault(from, new HashSet<>());
+        Set<String> current = new HashSet<>();
+        for (int i = 2; i < parts.length; i++) {
+            String[] f = parts[i].split(",");
+            if (f.length < 8)
+                continue;
+            Position pos = new Position(Double.parseDouble(f[1]), Double.parseDouble(f[2]), Double.parseDouble(f[3]),
+                    Integer.parseInt(f[4]));
+            env.updateVehicleState(f[0], pos, f[5], Double.parseDouble(f[6]), Double.parseDouble(f[7]), 0,
+                    "Ghost", null);
+            current.add(f[0]);
+        }
+        for (String gone : previous) {
+            if (!current.contains(gone))
+                env.removeVehicle(gone);
+        }
+        ghostsByRegion.put(from, current);
+    }
+
+    private void send(int region, int performative, String content) {
+        ACLMessage msg = new ACLMessage(performative);
+        msg.addReceiver(new AID(NAME_PREFIX + region, AID.ISLOCALNAME));
+        msg.setContent(content);
+        send(msg);
+    }
+
+    @Override
+    protected void takeDown() {
+        stopTicking();
+        Environment env = Environment.getInstance();
+        for (Set<String> ghosts : ghostsByRegion.values())
+            for (String ghost : ghosts)
+                env.removeVehicle(ghost);
+        super.takeDown();
+    }
+}
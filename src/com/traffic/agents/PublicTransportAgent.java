@@ -12,37 +12,38 @@ public class PublicTransportAgent extends VehicleAgent {
     @Override
     protected void initializeProperties() {
         super.initializeProperties();
-        passengers = (int) (Math.random() * 40 + 10);
-        lastStopDeparture = System.currentTimeMillis();
+        passengers = random.nextInt(10, 50);
+        lastStopDeparture = Environment.getInstance().getClock().now();
         // Buses are slower and more predictable
-        currentMaxSpeed *= 0.8;
+        vehicle.currentMaxSpeed *= 0.8;
     }
 
     @Override
     protected void decide() {
         if (isAtStop) {
-            if (System.currentTimeMillis() - lastStopDeparture > 10000) {
+            if (Environment.getInstance().getClock().now() - lastStopDeparture > 10000) {
                 isAtStop = false;
-                lastStopDeparture = System.currentTimeMillis();
+                lastStopDeparture = Environment.getInstance().getClock().now();
             } else {
+                vehicle.speed = 0;
                 speed = 0;
-                currentAction = "Loading Passengers (" + passengers + ")";
-                Environment.getInstance().updateVehicleState(getLocalName(), position, currentRoadId, 0, currentAction,
-                        null);
+                vehicle.currentAction = "Loading Passengers (" + passengers + ")";
+                Environment.getInstance().updateVehicleState(getLocalName(), position, vehicle.currentRoadId,
+                        vehicle.progress, 0, 0, vehicle.currentAction, null);
                 return;
             }
         }
 
         // Logic to detect a virtual stop (e.g. every 500 units of progress or specific
         // landmarks)
-        if (progress > 500 && Math.random() < 0.01) {
+        if (vehicle.progress > 500 && random.nextDouble() < 0.01) {
             isAtStop = true;
-            progress = Math.floor(progress); // "Snap" to stop
+            vehicle.progress = Math.floor(vehicle.progress); // "Snap" to stop
         }
 
         super.decide();
         if (!isAtStop) {
-            currentAction = "Transporting " + passengers + " Citizens";
+            vehicle.currentAction = "Transporting " + passengers + " Citizens";
         }
     }
 
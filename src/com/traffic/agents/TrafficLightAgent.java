@@ -1,7 +1,6 @@
 package com.traffic.agents;
 
 import jade.lang.acl.ACLMessage;
-import jade.core.AID;
 import com.traffic.environment.Environment;
 import com.traffic.model.*;
 
@@ -30,7 +29,8 @@ public class TrafficLightAgent extends BaseTrafficAgent {
             position = new Position(0, 0);
             targetRoadId = "R1";
         }
-        lastSwitchTime = System.currentTimeMillis();
+        lastSwitchTime = Environment.getInstance().getClock().now();
+        Environment.getInstance().getSignals().bind(getLocalName(), targetRoadId, currentState);
         speed = 0;
         direction = 0;
         perceptionRadius = 0;
@@ -69,15 +69,7 @@ public class TrafficLightAgent extends BaseTrafficAgent {
     }
 
     private void findMyIntersection() {
-        Environment env = Environment.getInstance();
-        for (Intersection inter : env.getIntersections().values()) {
-            for (RoadSegment incoming : inter.getIncomingRoads()) {
-                if (incoming.getId().equals(targetRoadId)) {
-                    myIntersection = inter;
-                    return;
-                }
-            }
-        }
+        myIntersection = Environment.getInstance().getRoadGraph().getDownstreamIntersection(targetRoadId);
     }
 
     private int categorizeDensity(int count) {
@@ -89,8 +81,8 @@ public class TrafficLightAgent extends BaseTrafficAgent {
     }
 
     private int selectAction(int state) {
-        if (Math.random() < 0.1)
-            return (int) (Math.random() * 3);
+        if (random.nextDouble() < 0.1)
+            return random.nextInt(3);
         int best = 1;
         for (int a = 0; a < 3; a++) {
             if (qTable[state][a] > qTable[state][best])
@@ -101,16 +93,26 @@ public class TrafficLightAgent extends BaseTrafficAgent {
 
     @Override
     protected void handleMessage(ACLMessage msg) {
-        if (msg.getPerformative() == ACLMessage.REQUEST && msg.getContent().equals("PRIORITY_PASS")) {
-            if (currentState != LightState.GREEN)
-                switchTo(LightState.GREEN);
-            lastSwitchTime = System.currentTimeMillis() + 8000;
-        }
+        if (msg.getPerformative() == ACLMessage.REQUEST
+                && msg.getContent().equals(TrafficEvent.Type.PRIORITY_PASS.name()))
+            grantPriority();
+    }
+
+    @Override
+    protected void handleEvent(TrafficEvent event) {
+        if (event.type == TrafficEvent.Type.PRIORITY_PASS)
+            grantPriority();
+    }
+
+    private void grantPriority() {
+        if (currentState != LightState.GREEN)
+            switchTo(LightState.GREEN);
+        lastSwitchTime = Environment.getInstance().getClock().now() + 8000;
     }
 
     @Override
     protected void decide() {
-        long elapsed = System.currentTimeMillis() - lastSwitchTime;
+        long elapsed = Environment.getInstance().getClock().now() - lastSwitchTime;
         switch (currentState) {
             case RED:
                 if (elapsed > 10000)
@@ -130,12 +132,15 @@ public class TrafficLightAgent extends BaseTrafficAgent {
 
     private void switchTo(LightState next) {
         currentState = next;
-        lastSwitchTime = System.currentTimeMillis();
-        ACLMessage inform = new ACLMessage(ACLMessage.INFORM);
-        inform.setContent(currentState.toString());
-        for (String agentName : Environment.getInstance().getVehiclePositions().keySet()) {
-            inform.addReceiver(new AID(agentName, AID.ISLOCALNAME));
-        }
-        send(inform);
+        lastSwitchTime = Environment.getInstance().getClock().now();
+        // Only vehicles on the approach we control are subscribed
+        Environment.getInstance().getSignals().publish(getLocalName(), currentState);
+    }
+
+    @Override
+    protected void takeDown() {
+        stopTicking();
+        Environment.getInstance().getSignals().unbind(getLocalName());
+        super.takeDown();
     }
 }
@@ -0,0 +1,513 @@
+package com.traffic.agents;
+
+import java.util.List;
+import java.util.ArrayList;
+import com.traffic.environment.Environment;
+import com.traffic.environment.RoadOccupancy;
+import com.traffic.environment.SignalSubscriptions;
+import com.traffic.environment.WorldFrame;
+import com.traffic.logic.Pathfinder;
+import com.traffic.model.*;
+
+/**
+ * Behaviour of a single vehicle (perception, car-following, lane positioning
+ * and routing) without any JADE machinery. A {@link VehicleAgent} drives one of
+ * these per agent; a {@link VehiclePopulationAgent} drives thousands.
+ */
+public class VehicleController {
+    protected final String name;
+    protected Position position;
+    protected double speed;
+    protected double direction; // in radians
+    protected double perceptionRadius;
+
+    protected String currentRoadId;
+    protected int lane;
+    protected double progress; // Distance along current road
+    protected DrivingProfile profile;
+    protected String destinationInterId;
+    // Live-weight route taken after a hazard reroute; the destination tree takes over once it is used up
+    protected List<String> detour = new ArrayList<>();
+
+    protected double currentMaxSpeed;
+    protected double currentSafetyRadius;
+    protected PerceptionData perceptionData = new PerceptionData();
+    protected String currentAction = "Cruising";
+    protected long lastRerouteTime = -5000; // simulated time starts at 0; allow an immediate first reroute
+    protected boolean finished = false; // set once the vehicle has left the network
+    private final Position roadPoint = new Position(0, 0);
+    // Light controlling the current road, kept up to date by its phase-change callbacks. A callback
+    // from the previous light can still arrive after resubscribing; it is ignored
+    private volatile String signalLight;
+    private final SignalSubscriptions.Listener signalListener = (light, state) -> {
+        if (light.equals(signalLight))
+            signalState = state;
+    };
+    private String subscribedRoadId;
+    private volatile LightState signalState;
+    private String agentClass; // hosting agent, null inside a population
+    // Level of detail: in free flow one full step covers `stride` ticks and the ones in between are skipped
+    private static final int MAX_STRIDE = Integer.getInteger("traffic.lodStride", 4);
+    private int stride = 1;
+    private int ticksUntilStep = 0;
+    private List<Position> pathPositions;
+    private String pathPositionsRoad;
+    private long pathPositionsEpoch;
+
+    /**
+     * Arguments as for {@link VehicleAgent}: x, y, roadId [, profile [, lane [,
+     * destinationIntersection [, speed [, detour roads joined by ',']]]]].
+     */
+    public VehicleController(String name, Object[] args) {
+        this.name = name;
+        reset(args);
+    }
+
+    /**
+     * Re-enters the vehicle at a new source with fresh state, reusing this object.
+     * Takes the same arguments as the constructor.
+     */
+    public final void reset(Object[] args) {
+        double initialSpeed = 0.0;
+        destinationInterId = null;
+        lane = 0;
+        if (args != null && args.length >= 3) {
+            double x = Double.parseDouble(args[0].toString());
+            double y = Double.parseDouble(args[1].toString());
+            currentRoadId = args[2].toString();
+            position = new Position(x, y);
+
+            if (args.length >= 4) {
+                profile = DrivingProfile.valueOf(args[3].toString().toUpperCase());
+            } else {
+                profile = DrivingProfile.NORMAL;
+            }
+
+            if (args.length >= 5) {
+                lane = Integer.parseInt(args[4].toString());
+                position.setLane(lane);
+            }
+            if (args.length >= 6 && args[5] != null) {
+                destinationInterId = args[5].toString();
+            }
+            if (args.length >= 7) {
+                initialSpeed = Double.parseDouble(args[6].toString());
+            }
+        } else {
+            position = new Position(0, 0);
+            profile = DrivingProfile.NORMAL;
+            currentRoadId = "R1";
+            lane = 0;
+        }
+
+        speed = initialSpeed;
+        progress = 0;
+        direction = 0;
+        pathPositions = null;
+        detour = new ArrayList<>();
+        if (args != null && args.length >= 8 && args[7] != null) {
+            for (String road : args[7].toString().split(","))
+                if (!road.isEmpty())
+                    detour.add(road);
+        }
+        perceptionData = new PerceptionData();
+        currentAction = "Cruising";
+        lastRerouteTime = -5000;
+        finished = false;
+        stride = 1;
+        ticksUntilStep = 0;
+        perceptionRadius = 150.0 * profile.getSafetyMultiplier();
+        currentSafetyRadius = 60.0 * profile.getSafetyMultiplier();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Position getPosition() {
+        return position;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    public double getDirection() {
+        return direction;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Class of the agent hosting this vehicle, so a handoff re-creates the same
+     * kind of vehicle in the next region.
+     */
+    public void setAgentClass(String agentClass) {
+        this.agentClass = agentClass;
+    }
+
+    public void perceive() {
+        if (ticksUntilStep > 0)
+            return;
+        Environment env = Environment.getInstance();
+        RoadSegment road = env.getRoads().get(currentRoadId);
+        if (road == null)
+            return;
+
+        direction = road.getAngle();
+        currentMaxSpeed = road.getSpeedLimit() * profile.getSpeedMultiplier();
+        perceptionData = new PerceptionData();
+
+        // 1. Vehicles (lane neighbours from the road's ordered occupancy, speeds from the published frame)
+        WorldFrame frame = env.getFrame();
+        RoadOccupancy.Neighbours neighbours = env.getNeighbours(currentRoadId, name);
+        if (neighbours != null) {
+            PerceptionData.Obstacle lead = toObstacle(frame, neighbours.leader, lane);
+            if (lead == null && neighbours.leader == null) {
+                // Nobody ahead on this road: the leader is the last vehicle that entered the next one
+                String nextRoadId = peekNextRoadId(env);
+                RoadOccupancy.Neighbour rear = nextRoadId == null ? null : env.getRearmostVehicle(nextRoadId, lane);
+                if (rear != null)
+                    lead = toObstacle(frame, rear.name, road.getLength() - progress + rear.progress, lane);
+            }
+            if (lead != null)
+                perceptionData.setLeadVehicle(lead);
+
+            PerceptionData.Obstacle obs = toObstacle(frame, neighbours.leftAhead, lane - 1);
+            if (obs != null)
+                perceptionData.setLeftVehicle(obs);
+            obs = toObstacle(frame, neighbours.rightAhead, lane + 1);
+            if (obs != null)
+                perceptionData.setRightVehicle(obs);
+            obs = toObstacle(frame, neighbours.leftBehind, lane - 1);
+            if (obs != null)
+                perceptionData.setLeftBehind(obs);
+            obs = toObstacle(frame, neighbours.rightBehind, lane + 1);
+            if (obs != null)
+                perceptionData.setRightBehind(obs);
+        }
+
+        // 2. Traffic Lights (the one controlling our approach, once it is close)
+        if (!currentRoadId.equals(subscribedRoadId))
+            resubscribe(env);
+        Position lightPos = signalLight == null ? null : frame.getLightPositions().get(signalLight);
+        LightState state = signalState;
+        if (lightPos != null && state != null) {
+            double lightDistance = position.distanceTo(lightPos);
+            if (lightDistance <= 80.0)
+                perceptionData.setTrafficLight(new PerceptionData.LightInfo(signalLight, state, lightDistance));
+        }
+
+        // 3. Incidents (current road ahead of us, then the start of the next road)
+        if (!env.getIncidentsOnRoad(currentRoadId, progress, progress + perceptionRadius).isEmpty()) {
+            perceptionData.setIncidentAhead(true);
+        } else {
+            double remaining = perceptionRadius - (road.getLength() - progress);
+            String nextRoadId = remaining > 0 ? peekNextRoadId(env) : null;
+            if (nextRoadId != null && !env.getIncidentsOnRoad(nextRoadId, 0, remaining).isEmpty())
+                perceptionData.setIncidentAhead(true);
+        }
+
+        // 4. Roundabout
+        if (road.isYieldTarget())
+            checkRoundaboutYield(env, frame, road);
+    }
+
+    private PerceptionData.Obstacle toObstacle(WorldFrame frame, RoadOccupancy.Neighbour other, int otherLane) {
+        if (other == null)
+            return null;
+        return toObstacle(frame, other.name, Math.abs(other.progress - progress), otherLane);
+    }
+
+    private PerceptionData.Obstacle toObstacle(WorldFrame frame, String otherName, double distance, int otherLane) {
+        if (distance > perceptionRadius)
+            return null;
+        int other = frame.indexOf(otherName);
+        double otherSpeed = other < 0 ? speed : frame.getSpeed(other);
+        return new PerceptionData.Obstacle(otherName, distance, otherSpeed - speed, otherLane);
+    }
+
+    private void checkRoundaboutYield(Environment env, WorldFrame frame, RoadSegment entryRoad) {
+        Intersection junction = findNextIntersectionForRoad(env, entryRoad.getId());
+        if (junction == null)
+            return;
+        for (String otherName : env.getNearbyAgents(position, 100.0, name)) {
+            int other = frame.indexOf(otherName);
+            String otherRoadId = other < 0 ? null : frame.getRoadId(other);
+            if (otherRoadId != null && !otherRoadId.equals(entryRoad.getId())) {
+                perceptionData.setEmergencyBrake(true);
+                currentAction = "Yielding to Circle";
+                return;
+            }
+        }
+    }
+
+    public void decide() {
+        if (finished)
+            return;
+        if (ticksUntilStep > 0) {
+            ticksUntilStep--;
+            return;
+        }
+        Environment env = Environment.getInstance();
+        RoadSegment road = env.getRoads().get(currentRoadId);
+        if (road == null)
+            return;
+
+        double prevSpeed = speed;
+        boolean shouldBrake = false;
+        double accel = profile.getAccelRate();
+
+        if (perceptionData.isEmergencyBrake()) {
+            shouldBrake = true;
+            accel = -profile.getBrakeRate() * 2.0;
+        } else if (perceptionData.getLeadVehicle().isPresent()) {
+            double dist = perceptionData.getLeadVehicle().get().distance;
+            if (dist < (speed * 1.5 + 20.0)) {
+                shouldBrake = true;
+                accel = -profile.getBrakeRate();
+                currentAction = "Following Lead";
+            }
+        } else if (perceptionData.getTrafficLight().isPresent()) {
+            PerceptionData.LightInfo light = perceptionData.getTrafficLight().get();
+            if (light.state != LightState.GREEN && light.distance > 10.0) {
+                shouldBrake = true;
+                accel = -profile.getBrakeRate();
+                currentAction = "Stopping at Light";
+            }
+        }
+
+        double multiplier = env.getTimeMultiplier();
+        if (!shouldBrake) {
+            currentAction = "Cruising";
+            if (stride > 1) {
+                cruise(stride, accel, multiplier);
+            } else {
+                speed = Math.min(currentMaxSpeed, speed + accel);
+                progress += speed * multiplier;
+            }
+        } else {
+            // The skipped ticks were still free flow; only the last one brakes
+            if (stride > 1)
+                cruise(stride - 1, profile.getAccelRate(), multiplier);
+            speed = Math.max(0, speed + accel);
+            progress += speed * multiplier;
+        }
+        int covered = stride;
+        stride = !shouldBrake && isFreeFlow(road) ? nextStride(road, multiplier) : 1;
+        ticksUntilStep = stride - 1;
+
+        double threshold = Math.max(5.0, speed * 0.5);
+        if (progress >= road.getLength() - threshold) {
+            handleIntersectionEntry(env, road);
+            progress = 0;
+            stride = 1; // new road: look around before skipping again
+            ticksUntilStep = 0;
+            if (!finished && !env.ownsRoad(currentRoadId))
+                handOff(env);
+            if (finished)
+                return;
+        } else {
+            updatePhysicalPosition(road);
+        }
+
+        // Sync with transparency layer
+        env.updateVehicleState(name, position, currentRoadId, progress, speed, (speed - prevSpeed) / covered,
+                currentAction, getPathPositions(env));
+    }
+
+    /**
+     * Applies {@code ticks} per-tick accelerate-then-cruise updates in closed form.
+     */
+    private void cruise(int ticks, double accel, double multiplier) {
+        int accelerating = speed >= currentMaxSpeed ? 0
+                : accel <= 0 ? ticks : (int) Math.min(ticks, Math.floor((currentMaxSpeed - speed) / accel));
+        double distance = accelerating * speed + accel * accelerating * (accelerating + 1) / 2.0
+                + (ticks - accelerating) * currentMaxSpeed;
+        speed = accelerating == ticks ? speed + accel * ticks : currentMaxSpeed;
+        progress += distance * multiplier;
+    }
+
+    /**
+     * Nothing to react to within the perception horizon: no lead vehicle,
+     * signal, incident or yield conflict.
+     */
+    private boolean isFreeFlow(RoadSegment road) {
+        return !perceptionData.isEmergencyBrake() && !perceptionData.isIncidentAhead()
+                && !perceptionData.getLeadVehicle().isPresent() && !perceptionData.getTrafficLight().isPresent()
+                && !road.isYieldTarget();
+    }
+
+    /**
+     * Ticks the next step may cover. Vehicles within one perception radius of the
+     * road end (junction, signal, next road's traffic) always step every tick.
+     */
+    private int nextStride(RoadSegment road, double multiplier) {
+        double horizon = road.getLength() - progress - perceptionRadius;
+        double perTick = Math.max(currentMaxSpeed, speed) * multiplier;
+        if (horizon <= 0 || perTick <= 0)
+            return 1;
+        return (int) Math.max(1, Math.min(MAX_STRIDE, Math.floor(horizon / perTick)));
+    }
+
+    /**
+     * Road end points of the route ahead (the detour, else read off the
+     * destination tree), rebuilt only when the road or the historical epoch changes.
+     */
+    private List<Position> getPathPositions(Environment env) {
+        long epoch = env.getEdgeWeights().getHistoricalEpoch();
+        if (pathPositions == null || !currentRoadId.equals(pathPositionsRoad) || pathPositionsEpoch != epoch) {
+            List<Position> positions = new ArrayList<>();
+            Intersection inter = destinationInterId == null ? null : findNextIntersectionForRoad(env, currentRoadId);
+            if (inter != null) {
+                List<String> route = !detour.isEmpty() ? detour
+                        : env.getDestinationTrees().getRoute(inter.getId(), destinationInterId);
+                for (String rid : route) {
+                    RoadSegment rs = env.getRoads().get(rid);
+                    if (rs != null)
+                        positions.add(rs.getEnd());
+                }
+            }
+            pathPositions = positions;
+            pathPositionsRoad = currentRoadId;
+            pathPositionsEpoch = epoch;
+        }
+        return pathPositions;
+    }
+
+    private void updatePhysicalPosition(RoadSegment road) {
+        double t = road.getParameterAtDistance(progress);
+        Position basePos = road.getPointAt(t, roadPoint);
+        double roadAngle = road.getAngleAt(t);
+
+        Geometry.offsetInto(basePos.getX(), basePos.getY(), roadAngle, road.getLaneOffset(lane), position);
+        position.setZ(basePos.getZ()); // Support for 3D elevation
+        direction = roadAngle;
+    }
+
+    private void handleIntersectionEntry(Environment env, RoadSegment currentRoad) {
+        Intersection reached = findNextIntersectionForRoad(env, currentRoadId);
+        if (reached != null && reached.getId().equals(destinationInterId)) {
+            destinationInterId = null; // arrived; wander on like a vehicle without a destination
+            detour.clear();
+        }
+        String nextId = nextRoadToDestination(env);
+        if (nextId != null) {
+            if (!detour.isEmpty())
+                detour.remove(0);
+            RoadSegment nextRoad = env.getRoads().get(nextId);
+
+            // If we are in a roundabout or transitioning between circular segments, switch
+            // immediately
+            boolean isRoundaboutTransition = currentRoad.isCurved() || (nextRoad != null && nextRoad.isCurved());
+
+            if (nextRoad != null) {
+                currentRoadId = nextId;
+                position.set(nextRoad.getStart().getX(), nextRoad.getStart().getY());
+
+                // If it's a roundabout, snap progress forward slightly to avoid re-triggering
+                // intersection
+                if (isRoundaboutTransition) {
+                    progress = speed;
+                }
+                return;
+            }
+        }
+
+        if (reached != null && !reached.getOutgoingRoads().isEmpty()) {
+            RoadSegment nextRoad = reached.getOutgoingRoads().get(0);
+            currentRoadId = nextRoad.getId();
+            position.set(nextRoad.getStart().getX(), nextRoad.getStart().getY());
+            if (nextRoad.isCurved())
+                progress = speed;
+        } else {
+            // Left the network
+            release();
+        }
+    }
+
+    /**
+     * Leaves this shard: the vehicle is removed here and re-created by the region
+     * owning its new road.
+     */
+    private void handOff(Environment env) {
+        release();
+        env.requestHandoff(new Environment.Handoff(name, env.getRegionMap().getRegion(currentRoadId), agentClass,
+                new Object[] { position.getX(), position.getY(), currentRoadId, profile.name(), lane,
+                        destinationInterId, speed, String.join(",", detour) }));
+    }
+
+    private void resubscribe(Environment env) {
+        SignalSubscriptions signals = env.getSignals();
+        signals.unsubscribe(signalLight, signalListener);
+        signalState = null;
+        signalLight = signals.getLight(currentRoadId); // before subscribing, which delivers the current state
+        signals.subscribe(currentRoadId, signalListener);
+        subscribedRoadId = currentRoadId;
+    }
+
+    /**
+     * Removes the vehicle from the environment and drops its subscriptions.
+     * Safe to call more than once.
+     */
+    public void release() {
+        Environment env = Environment.getInstance();
+        env.getSignals().unsubscribe(signalLight, signalListener);
+        signalLight = null;
+        subscribedRoadId = null;
+        env.removeVehicle(name);
+        finished = true;
+    }
+
+    /**
+     * Road the vehicle will take after the current one, without committing to it.
+     */
+    private String peekNextRoadId(Environment env) {
+        String nextId = nextRoadToDestination(env);
+        if (nextId != null)
+            return nextId;
+        Intersection inter = findNextIntersectionForRoad(env, currentRoadId);
+        if (inter == null || inter.getOutgoingRoads().isEmpty())
+            return null;
+        return inter.getOutgoingRoads().get(0).getId();
+    }
+
+    /**
+     * Next road towards the destination: the head of the detour if there is one,
+     * otherwise from the shared destination tree. Null without a destination (or
+     * once it is reached or unreachable).
+     */
+    private String nextRoadToDestination(Environment env) {
+        if (destinationInterId == null)
+            return null;
+        if (!detour.isEmpty())
+            return detour.get(0);
+        Intersection inter = findNextIntersectionForRoad(env, currentRoadId);
+        return inter == null ? null : env.getDestinationTrees().getNextRoad(inter.getId(), destinationInterId);
+    }
+
+    private Intersection findNextIntersectionForRoad(Environment env, String roadId) {
+        return env.getRoadGraph().getDownstreamIntersection(roadId);
+    }
+
+    public void handleEvent(TrafficEvent event) {
+        if (event.type == TrafficEvent.Type.HAZARD_AHEAD)
+            triggerReroute();
+    }
+
+    public void triggerReroute() {
+        if (Environment.getInstance().getClock().now() - lastRerouteTime < 5000)
+            return;
+        Environment env = Environment.getInstance();
+        Intersection nextInter = findNextIntersectionForRoad(env, currentRoadId);
+        if (nextInter != null && destinationInterId != null) {
+            // The destination tree only knows historical congestion; route on live occupancy and incidents
+            detour = Pathfinder.findRoute(nextInter.getId(), destinationInterId);
+            pathPositions = null;
+            lastRerouteTime = env.getClock().now();
+            currentAction = "Rerouting around Hazard";
+        }
+    }
+}
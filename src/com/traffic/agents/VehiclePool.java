@@ -0,0 +1,81 @@
+package com.traffic.agents;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Idle vehicles waiting to be re-entered at a source. Vehicles that leave the
+ * network park here instead of being destroyed, and the spawner hands them new
+ * arguments rather than creating fresh agents or controllers.
+ */
+public class VehiclePool {
+    private static VehiclePool instance;
+
+    private final Queue<VehicleAgent> idleAgents = new ConcurrentLinkedQueue<>();
+    private final Queue<VehicleController> idleControllers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicLong recycled = new AtomicLong();
+    private volatile int maxIdle = Integer.getInteger("traffic.poolSize", 1000);
+
+    public static synchronized VehiclePool getInstance() {
+        if (instance == null)
+            instance = new VehiclePool();
+        return instance;
+    }
+
+    /**
+     * Offers a finished agent for reuse. Returns false if the pool is full, in
+     * which case the caller should delete the agent as before.
+     */
+    public boolean park(VehicleAgent agent) {
+        if (!reserve())
+            return false;
+        idleAgents.add(agent);
+        return true;
+    }
+
+    public boolean park(VehicleController vehicle) {
+        if (!reserve())
+            return false;
+        idleControllers.add(vehicle);
+        return true;
+    }
+
+    public VehicleAgent acquireAgent() {
+        return taken(idleAgents.poll());
+    }
+
+    public VehicleController acquireController() {
+        return taken(idleControllers.poll());
+    }
+
+    public int getIdleCount() {
+        return idleCount.get();
+    }
+
+    public long getRecycledCount() {
+        return recycled.get();
+    }
+
+    public void setMaxIdle(int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    private boolean reserve() {
+        if (idleCount.incrementAndGet() > maxIdle) {
+            idleCount.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private <T> T taken(T item) {
+        if (item != null) {
+            idleCount.decrementAndGet();
+            recycled.incrementAndGet();
+        }
+        return item;
+    }
+}
@@ -0,0 +1,101 @@
+package com.traffic.agents;
+
+import jade.lang.acl.ACLMessage;
+import com.traffic.environment.Environment;
+import com.traffic.environment.EventBus;
+import com.traffic.model.TrafficEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Hosts many lightweight vehicles inside one JADE agent. Vehicles are plain
+ * {@link VehicleController}s stepped in batches on this agent's tick, so they
+ * need no thread, message queue or AID of their own. New vehicles are handed
+ * over through the queue passed as the first argument.
+ */
+public class VehiclePopulationAgent extends BaseTrafficAgent {
+    private Queue<VehicleController> arrivals = new ConcurrentLinkedQueue<>();
+    private final List<VehicleController> vehicles = new ArrayList<>();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void initializeProperties() {
+        Object[] args = getArguments();
+        if (args != null && args.length >= 1 && args[0] instanceof Queue)
+            arrivals = (Queue<VehicleController>) args[0];
+        position = null; // the population itself has no place on the map
+        speed = 0;
+        direction = 0;
+        perceptionRadius = 0;
+    }
+
+    public Queue<VehicleController> getArrivals() {
+        return arrivals;
+    }
+
+    public int getVehicleCount() {
+        return vehicles.size();
+    }
+
+    @Override
+    protected void perceive() {
+        EventBus events = Environment.getInstance().getEvents();
+        VehicleController arrival;
+        while ((arrival = arrivals.poll()) != null) {
+            events.register(arrival.getName());
+            vehicles.add(arrival);
+        }
+
+        for (VehicleController vehicle : vehicles) {
+            try {
+                vehicle.perceive();
+            } catch (RuntimeException e) {
+                System.err.println("CRITICAL ERROR in vehicle " + vehicle.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    protected void handleMessage(ACLMessage msg) {
+    }
+
+    @Override
+    protected void decide() {
+        // Step everyone, then compact out the vehicles that left the network
+        EventBus events = Environment.getInstance().getEvents();
+        int kept = 0;
+        for (int i = 0; i < vehicles.size(); i++) {
+            VehicleController vehicle = vehicles.get(i);
+            try {
+                for (TrafficEvent event : events.drain(vehicle.getName()))
+                    vehicle.handleEvent(event);
+                vehicle.decide();
+            } catch (RuntimeException e) {
+                System.err.println("CRITICAL ERROR in vehicle " + vehicle.getName() + ": " + e.getMessage());
+            }
+            if (!vehicle.isFinished())
+                vehicles.set(kept++, vehicle);
+            else
+                retire(events, vehicle);
+        }
+        vehicles.subList(kept, vehicles.size()).clear();
+    }
+
+    private void retire(EventBus events, VehicleController vehicle) {
+        events.unregister(vehicle.getName());
+        VehiclePool.getInstance().park(vehicle);
+    }
+
+    @Override
+    protected void takeDown() {
+        stopTicking();
+        for (VehicleController vehicle : vehicles) {
+            vehicle.release();
+            Environment.getInstance().getEvents().unregister(vehicle.getName());
+        }
+        vehicles.clear();
+        super.takeDown();
+    }
+}
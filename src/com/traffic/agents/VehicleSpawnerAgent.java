@@ -5,14 +5,29 @@ import jade.lang.acl.ACLMessage;
 import jade.wrapper.AgentController;
 import jade.wrapper.ContainerController;
 import com.traffic.environment.Environment;
+import com.traffic.logic.RegionMap;
+import com.traffic.logic.RoadGraph;
 import com.traffic.model.DrivingProfile;
 import com.traffic.model.RoadSegment;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class VehicleSpawnerAgent extends BaseTrafficAgent {
     private int spawnCount = 0;
     private long lastSpawnTime = 0;
     private float baseSpawnRate = 0.3f; // seconds
+    private int maxVehicles = 50;
+    // Roads this region may spawn on, rebuilt when the map or the partition changes
+    private List<RoadSegment> ownedRoads = new ArrayList<>();
+    private RoadGraph ownedRoadsGraph;
+    private RegionMap ownedRoadsMap;
+    private int ownedRoadsRegion;
+    // Population mode (-Dtraffic.vehicles=population): vehicles are handed to
+    // VehiclePopulationAgents instead of becoming agents of their own
+    private List<Queue<VehicleController>> populations;
+    private int nextPopulation = 0;
 
     @Override
     protected void initializeProperties() {
@@ -20,6 +35,29 @@ public class VehicleSpawnerAgent extends BaseTrafficAgent {
         speed = 0;
         direction = 0;
         perceptionRadius = 0;
+        maxVehicles = Integer.getInteger("traffic.maxVehicles", maxVehicles);
+        String rate = System.getProperty("traffic.spawnRate");
+        if (rate != null)
+            baseSpawnRate = Float.parseFloat(rate);
+        if ("population".equals(System.getProperty("traffic.vehicles")))
+            startPopulations(Runtime.getRuntime().availableProcessors());
+    }
+
+    private void startPopulations(int count) {
+        populations = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Queue<VehicleController> arrivals = new ConcurrentLinkedQueue<>();
+            try {
+                getContainerController().createNewAgent("Population-" + i, "com.traffic.agents.VehiclePopulationAgent",
+                        new Object[] { arrivals }).start();
+                populations.add(arrivals);
+            } catch (Throwable e) {
+                System.err.println("FAILED TO START POPULATION: " + i);
+                e.printStackTrace();
+            }
+        }
+        if (populations.isEmpty())
+            populations = null;
     }
 
     @Override
@@ -32,44 +70,101 @@ public class VehicleSpawnerAgent extends BaseTrafficAgent {
 
     @Override
     protected void decide() {
-        long now = System.currentTimeMillis();
+        long now = Environment.getInstance().getClock().now();
         float currentRate = baseSpawnRate * getRushHourMultiplier();
 
-        if (now - lastSpawnTime > (1.0 / currentRate) * 1000 && spawnCount < 50) {
-            spawnVehicle();
-            lastSpawnTime = now;
+        double interval = (1.0 / currentRate) * 1000;
+        if (now - lastSpawnTime > interval) {
+            // High rates can be due more than one vehicle per tick
+            int due = (int) Math.max(1, (now - lastSpawnTime) / interval);
+            for (int i = 0; i < due; i++) {
+                if (!spawnVehicle())
+                    break;
+            }
+            lastSpawnTime += (long) (due * interval); // keep the remainder so fractional rates add up
         }
     }
 
-    private void spawnVehicle() {
+    /**
+     * Roads this region owns (all of them when the map is not partitioned).
+     */
+    private List<RoadSegment> getOwnedRoads(Environment env) {
+        RoadGraph graph = env.getRoadGraph();
+        if (graph != ownedRoadsGraph || env.getRegionMap() != ownedRoadsMap || env.getRegion() != ownedRoadsRegion) {
+            List<RoadSegment> owned = new ArrayList<>();
+            for (RoadSegment road : env.getRoads().values()) {
+                if (env.ownsRoad(road.getId()))
+                    owned.add(road);
+            }
+            ownedRoads = owned;
+            ownedRoadsGraph = graph;
+            ownedRoadsMap = env.getRegionMap();
+            ownedRoadsRegion = env.getRegion();
+        }
+        return ownedRoads;
+    }
+
+    /**
+     * Enters one vehicle at a random source, preferring a recycled one. New
+     * vehicles are only created while fewer than maxVehicles exist. Returns false
+     * if nothing could be spawned.
+     */
+    private boolean spawnVehicle() {
         Environment env = Environment.getInstance();
         if (env.getRoads().isEmpty())
-            return;
+            return false;
+
+        List<RoadSegment> owned = getOwnedRoads(env);
+        if (owned.isEmpty())
+            return false;
+        RoadSegment startRoad = owned.get(random.nextInt(owned.size()));
+        Object[] args = new Object[] {
+                startRoad.getStart().getX(),
+                startRoad.getStart().getY(),
+                startRoad.getId(),
+                DrivingProfile.values()[random.nextInt(DrivingProfile.values().length)],
+                random.nextInt(Math.max(1, startRoad.getLanes()))
+        };
 
-        RoadSegment startRoad = (RoadSegment) env.getRoads().values()
-                .toArray()[(int) (Math.random() * env.getRoads().size())];
-        String vehicleName = "Vehicle-" + (++spawnCount);
+        // 1. Recycle a vehicle that already left the network
+        VehiclePool pool = VehiclePool.getInstance();
+        if (populations != null) {
+            VehicleController recycled = pool.acquireController();
+            if (recycled != null) {
+                recycled.reset(args);
+                populations.get(nextPopulation++ % populations.size()).add(recycled);
+                return true;
+            }
+        } else {
+            VehicleAgent recycled = pool.acquireAgent();
+            if (recycled != null) {
+                recycled.recycle(args);
+                return true;
+            }
+        }
 
+        // 2. Otherwise create a new one
+        if (spawnCount >= maxVehicles)
+            return false;
+        String vehicleName = env.getRegionMap() == null ? "Vehicle-" + (++spawnCount)
+                : "Vehicle-" + env.getRegion() + "-" + (++spawnCount);
         try {
+            if (populations != null) {
+                populations.get(nextPopulation++ % populations.size()).add(new VehicleController(vehicleName, args));
+                return true;
+            }
             ContainerController cc = getContainerController();
-            Object[] args = new Object[] {
-                    startRoad.getStart().getX(),
-                    startRoad.getStart().getY(),
-                    startRoad.getId(),
-                    DrivingProfile.values()[(int) (Math.random() * DrivingProfile.values().length)],
-                    (int) (Math.random() * startRoad.getLanes())
-            };
-
             AgentController ac = cc.createNewAgent(vehicleName, "com.traffic.agents.VehicleAgent", args);
             ac.start();
         } catch (Throwable e) {
             System.err.println("FAILED TO SPAWN VEHICLE: " + vehicleName);
             e.printStackTrace();
         }
+        return true;
     }
 
     private float getRushHourMultiplier() {
-        long hour = (System.currentTimeMillis() / 10000) % 24; // 10s = 1 hour simulation time
+        int hour = Environment.getInstance().getClock().getHourOfDay();
         if ((hour >= 7 && hour <= 9) || (hour >= 16 && hour <= 18))
             return 2.5f;
         return 1.0f;
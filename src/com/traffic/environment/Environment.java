@@ -1,32 +1,84 @@
 package com.traffic.environment;
 
+import com.traffic.logic.RegionMap;
+import com.traffic.logic.ContractionHierarchy;
+import com.traffic.logic.DestinationTreeService;
+import com.traffic.logic.EdgeWeights;
+import com.traffic.logic.RoadGraph;
+import com.traffic.logic.RouteCache;
 import com.traffic.model.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.Set;
 
 public class Environment {
     private static Environment instance;
 
     // Physical state
-    private Map<String, Position> vehiclePositions = new ConcurrentHashMap<>();
-    private Map<String, String> vehicleRoads = new ConcurrentHashMap<>();
-    private Map<String, String> vehicleThoughts = new ConcurrentHashMap<>();
-    private Map<String, List<Position>> vehiclePaths = new ConcurrentHashMap<>();
-    private Map<String, Double> vehicleAccels = new ConcurrentHashMap<>();
+    private final VehicleStateStore vehicleStore = new VehicleStateStore();
+    private final Map<String, Position> vehiclePositionView = vehicleStore.positionView();
+    private final Map<String, Double> vehicleAccelView = vehicleStore.accelView();
+    private volatile WorldFrame currentFrame = WorldFrame.empty();
+    private ScheduledExecutorService framePublisher;
+    private volatile SimulationEngine engine;
+    private volatile boolean virtualTicks = false;
+    private volatile RegionMap regionMap;
+    private volatile int region = 0;
+    private final Queue<Handoff> handoffs = new ConcurrentLinkedQueue<>();
     private Map<String, LightState> lightStates = new ConcurrentHashMap<>();
     private Map<String, Position> lightPositions = new ConcurrentHashMap<>();
+    private static final double GRID_CELL_SIZE = 100.0;
+    private final SpatialGrid vehicleGrid = new SpatialGrid(GRID_CELL_SIZE);
+    private final SpatialGrid lightGrid = new SpatialGrid(GRID_CELL_SIZE);
+    private Map<String, RoadOccupancy> roadOccupancy = new ConcurrentHashMap<>();
 
     // Map structure
     private Map<String, RoadSegment> roads = new ConcurrentHashMap<>();
     private Map<String, Intersection> intersections = new ConcurrentHashMap<>();
     private Map<String, Roundabout> roundabouts = new ConcurrentHashMap<>();
-    private List<Incident> activeIncidents = new java.util.concurrent.CopyOnWriteArrayList<>();
+    private Map<String, Integer> roadIndices = new ConcurrentHashMap<>();
+    private List<String> roadIdsByIndex = new CopyOnWriteArrayList<>();
+    private volatile RoadGraph roadGraph;
+    private volatile ContractionHierarchy hierarchy;
+    // Guards hierarchy rebuilds without blocking frame publication on the Environment monitor
+    private final Object hierarchyLock = new Object();
+    private volatile EdgeWeights edgeWeights;
+    private volatile RoadLocator roadLocator;
+    private Set<Incident> activeIncidents = ConcurrentHashMap.newKeySet();
+    private Map<String, NavigableSet<Incident>> incidentsByRoad = new ConcurrentHashMap<>();
+    private PriorityBlockingQueue<Incident> incidentExpiry = new PriorityBlockingQueue<>(16,
+            Comparator.comparingLong((Incident i) -> i.expiresAt));
+    private static final Position ORIGIN = new Position(0, 0);
     private Map<String, Double> historicalCongestion = new ConcurrentHashMap<>();
-    private boolean isPaused = false;
-    private double timeMultiplier = 1.0;
+    // A road's vehicle count or historical congestion drifting past this since its last snapshot starts a new epoch
+    private static final double CONGESTION_EPOCH_THRESHOLD = 1.0;
+    private Map<String, Double> epochBaseline = new ConcurrentHashMap<>();
+    private Map<String, Integer> occupancyBaseline = new ConcurrentHashMap<>();
+    private final AtomicLong historicalEpoch = new AtomicLong();
+    private final AtomicLong congestionEpoch = new AtomicLong();
+    private final RouteCache routeCache = new RouteCache(Integer.getInteger("traffic.routeCacheSize", 4096));
+    private final DestinationTreeService destinationTrees = new DestinationTreeService(
+            Integer.getInteger("traffic.destinationTrees", 256));
+    private volatile boolean isPaused = false;
+    private volatile double timeMultiplier = 1.0;
+    private final SimulationClock clock = new SimulationClock();
+    private final SignalSubscriptions signals = new SignalSubscriptions();
+    private final EventBus events = new EventBus();
+    private final RandomStreams randomStreams = new RandomStreams(Long.getLong("traffic.seed", System.nanoTime()));
     private jade.wrapper.AgentContainer mainContainer;
 
     public boolean isPaused() {
@@ -35,6 +87,7 @@ public class Environment {
 
     public void setPaused(boolean paused) {
         this.isPaused = paused;
+        clock.setPaused(paused);
     }
 
     public double getTimeMultiplier() {
@@ -43,6 +96,14 @@ public class Environment {
 
     public void setTimeMultiplier(double mult) {
         this.timeMultiplier = mult;
+        clock.setMultiplier(mult);
+    }
+
+    /**
+     * Simulated time source shared by all agents.
+     */
+    public SimulationClock getClock() {
+        return clock;
     }
 
     public jade.wrapper.AgentContainer getMainContainer() {
@@ -54,29 +115,88 @@ public class Environment {
     }
 
     public static class Incident {
+        private static final AtomicLong SEQUENCE = new AtomicLong();
+
         public String roadId;
         public Position position;
         public double z; // 3D elevation
         public long duration;
+        public double offset; // distance along the road, resolved by addIncident
+        public final long expiresAt;
+        public Runnable onExpire; // invoked once when the expiry queue retires the incident
+        final long seq;
 
         public Incident(String roadId, Position position, long duration) {
             this.roadId = roadId;
             this.position = position;
             this.z = position.getZ();
             this.duration = duration;
+            this.seq = SEQUENCE.incrementAndGet();
+            this.expiresAt = getInstance().getClock().now() + duration;
+        }
+
+        // Range-query bound that sorts before (or after) every real incident at the offset
+        private Incident(String roadId, double offset, long seq) {
+            this.roadId = roadId;
+            this.position = ORIGIN;
+            this.offset = offset;
+            this.expiresAt = Long.MAX_VALUE;
+            this.seq = seq;
         }
     }
 
+    private static final Comparator<Incident> BY_OFFSET = Comparator
+            .<Incident>comparingDouble(i -> i.offset).thenComparingLong(i -> i.seq);
+
     public void addIncident(Incident incident) {
+        RoadLocator.Hit hit = locateRoad(incident.position);
+        if (hit != null && hit.road.getId().equals(incident.roadId))
+            incident.offset = hit.offset;
+        incidentsByRoad.computeIfAbsent(incident.roadId, id -> new ConcurrentSkipListSet<>(BY_OFFSET)).add(incident);
         activeIncidents.add(incident);
+        incidentExpiry.add(incident);
+        congestionEpoch.incrementAndGet(); // live weights penalise incidents
     }
 
     public void removeIncident(Incident incident) {
-        activeIncidents.remove(incident);
+        if (detachIncident(incident))
+            incidentExpiry.remove(incident);
+    }
+
+    private boolean detachIncident(Incident incident) {
+        if (!activeIncidents.remove(incident))
+            return false;
+        NavigableSet<Incident> onRoad = incidentsByRoad.get(incident.roadId);
+        if (onRoad != null)
+            onRoad.remove(incident);
+        congestionEpoch.incrementAndGet();
+        return true;
     }
 
     public List<Incident> getActiveIncidents() {
-        return activeIncidents;
+        return new ArrayList<>(activeIncidents);
+    }
+
+    /**
+     * Incidents on the road whose offset lies in [fromOffset, toOffset], nearest first.
+     */
+    public NavigableSet<Incident> getIncidentsOnRoad(String roadId, double fromOffset, double toOffset) {
+        NavigableSet<Incident> onRoad = incidentsByRoad.get(roadId);
+        if (onRoad == null || onRoad.isEmpty() || fromOffset > toOffset)
+            return Collections.emptyNavigableSet();
+        return onRoad.subSet(new Incident(roadId, fromOffset, Long.MIN_VALUE), true,
+                new Incident(roadId, toOffset, Long.MAX_VALUE), true);
+    }
+
+    /**
+     * Retires every incident whose expiry time has passed and runs its callback.
+     */
+    public void expireIncidents(long now) {
+        Incident head;
+        while ((head = incidentExpiry.peek()) != null && head.expiresAt <= now) {
+            if (incidentExpiry.remove(head) && detachIncident(head) && head.onExpire != null)
+                head.onExpire.run();
+        }
     }
 
     private Environment() {
@@ -92,10 +212,129 @@ public class Environment {
     // Map Management
     public void addRoad(RoadSegment road) {
         roads.put(road.getId(), road);
+        getRoadIndex(road.getId());
+        invalidateRoadGraph();
+    }
+
+    /**
+     * Dense index of a road, assigned on first sight and stable for the run.
+     */
+    public int getRoadIndex(String roadId) {
+        Integer index = roadIndices.get(roadId);
+        if (index != null)
+            return index;
+        synchronized (roadIndices) {
+            return roadIndices.computeIfAbsent(roadId, id -> {
+                roadIdsByIndex.add(id);
+                return roadIdsByIndex.size() - 1;
+            });
+        }
+    }
+
+    public String getRoadIdAt(int roadIndex) {
+        return roadIndex < 0 ? null : roadIdsByIndex.get(roadIndex);
     }
 
     public void addIntersection(Intersection inter) {
         intersections.put(inter.getId(), inter);
+        invalidateRoadGraph();
+    }
+
+    /**
+     * Compiled int-indexed view of the network, rebuilt lazily after map edits.
+     * Road indices match {@link #getRoadIndex(String)}.
+     */
+    public RoadGraph getRoadGraph() {
+        RoadGraph graph = roadGraph;
+        if (graph == null) {
+            synchronized (roadIndices) {
+                graph = roadGraph;
+                if (graph == null) {
+                    graph = RoadGraph.build(intersections, roads, new ArrayList<>(roadIdsByIndex));
+                    roadGraph = graph;
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Contraction hierarchy of the current road graph, customized with the
+     * historical weights of the current edge-weight snapshot. Preprocessing reruns
+     * only when the graph changes; a new epoch just triggers a re-customization.
+     */
+    public ContractionHierarchy getContractionHierarchy() {
+        RoadGraph graph = getRoadGraph();
+        ContractionHierarchy ch = hierarchy;
+        if (ch == null || ch.getGraph() != graph) {
+            synchronized (hierarchyLock) {
+                ch = hierarchy;
+                if (ch == null || ch.getGraph() != graph) {
+                    ch = ContractionHierarchy.build(graph);
+                    hierarchy = ch;
+                }
+            }
+        }
+        EdgeWeights weights = getEdgeWeights();
+        long epoch = weights.getHistoricalEpoch();
+        if (ch.getMetricVersion() != epoch && weights.getGraph() == graph) {
+            synchronized (ch) {
+                if (ch.getMetricVersion() != epoch)
+                    ch.customize(weights.getHistorical(), epoch);
+            }
+        }
+        return ch;
+    }
+
+    /**
+     * Call after editing the map in place (intersection road lists, road shapes).
+     */
+    public void invalidateRoadGraph() {
+        roadGraph = null;
+        roadLocator = null;
+        historicalEpoch.incrementAndGet();
+        congestionEpoch.incrementAndGet();
+    }
+
+    /**
+     * Bumped whenever route weights change noticeably (a road's vehicle count or
+     * historical congestion drifts past the threshold, an incident starts or ends,
+     * or the map is edited). Routes computed in an older epoch should not be reused.
+     */
+    public long getCongestionEpoch() {
+        return congestionEpoch.get();
+    }
+
+    /**
+     * Like the congestion epoch, but ignores vehicle counts and incidents: it only
+     * moves with the historical congestion and map edits.
+     */
+    public long getHistoricalEpoch() {
+        return historicalEpoch.get();
+    }
+
+    /**
+     * Road weights captured at the last tick (or now, if the graph changed since).
+     */
+    public EdgeWeights getEdgeWeights() {
+        EdgeWeights weights = edgeWeights;
+        if (weights == null || weights.getGraph() != getRoadGraph())
+            weights = refreshEdgeWeights();
+        return weights;
+    }
+
+    public EdgeWeights refreshEdgeWeights() {
+        EdgeWeights weights = EdgeWeights.compute(getRoadGraph(), this);
+        edgeWeights = weights;
+        return weights;
+    }
+
+    public RouteCache getRouteCache() {
+        return routeCache;
+    }
+
+    public DestinationTreeService getDestinationTrees() {
+        return destinationTrees;
     }
 
     public Map<String, RoadSegment> getRoads() {
@@ -117,45 +356,139 @@ public class Environment {
     // Dynamic State Management
     public void updateVehicleState(String name, Position pos, String roadId, double accel, String thought,
             List<Position> path) {
-        vehiclePositions.put(name, pos);
-        if (roadId != null)
-            vehicleRoads.put(name, roadId);
-        vehicleAccels.put(name, accel);
-        if (thought != null)
-            vehicleThoughts.put(name, thought);
-        if (path != null)
-            vehiclePaths.put(name, path);
+        updateVehicleState(name, pos, roadId, Double.NaN, Double.NaN, accel, thought, path);
+    }
+
+    /**
+     * Full state update from a vehicle's own tick. NaN progress or speed leaves the
+     * stored value unchanged.
+     */
+    public void updateVehicleState(String name, Position pos, String roadId, double progress, double speed,
+            double accel, String thought, List<Position> path) {
+        int handle = vehicleStore.allocate(name);
+        int previousRoad = vehicleStore.getRoadIndex(handle);
+        int roadIndex = roadId == null ? previousRoad : getRoadIndex(roadId);
+
+        vehicleStore.beginWrite(handle);
+        try {
+            vehicleStore.setPosition(handle, pos.getX(), pos.getY(), pos.getZ(), pos.getLane());
+            if (!Double.isNaN(speed))
+                vehicleStore.setSpeed(handle, speed);
+            if (!Double.isNaN(progress))
+                vehicleStore.setProgress(handle, progress);
+            vehicleStore.setRoadIndex(handle, roadIndex);
+            vehicleStore.setAccel(handle, accel);
+            if (thought != null)
+                vehicleStore.setThought(handle, thought);
+            if (path != null)
+                vehicleStore.setPath(handle, path);
+        } finally {
+            vehicleStore.endWrite(handle);
+        }
+
+        vehicleGrid.update(name, pos.getX(), pos.getY());
+        if (roadId != null) {
+            if (previousRoad >= 0 && previousRoad != roadIndex) {
+                String previousId = getRoadIdAt(previousRoad);
+                getRoadOccupancy(previousId).remove(name);
+                trackOccupancy(previousId);
+            }
+            getRoadOccupancy(roadId).update(name, pos.getLane(), progress);
+            if (previousRoad != roadIndex)
+                trackOccupancy(roadId);
+        }
+    }
+
+    /**
+     * Copies an agent's position (and speed, unless NaN) into the store without
+     * touching road, acceleration or annotations.
+     */
+    public void syncAgentState(String name, Position pos, double speed) {
+        int handle = vehicleStore.allocate(name);
+        vehicleStore.beginWrite(handle);
+        try {
+            vehicleStore.setPosition(handle, pos.getX(), pos.getY(), pos.getZ(), pos.getLane());
+            if (!Double.isNaN(speed))
+                vehicleStore.setSpeed(handle, speed);
+        } finally {
+            vehicleStore.endWrite(handle);
+        }
+        vehicleGrid.update(name, pos.getX(), pos.getY());
     }
 
     public void removeVehicle(String name) {
-        vehiclePositions.remove(name);
-        vehicleRoads.remove(name);
-        vehicleAccels.remove(name);
+        int handle = vehicleStore.handleOf(name);
+        if (handle < 0)
+            return;
+        vehicleGrid.remove(name);
+        int roadIndex = vehicleStore.getRoadIndex(handle);
+        if (roadIndex >= 0) {
+            String roadId = getRoadIdAt(roadIndex);
+            getRoadOccupancy(roadId).remove(name);
+            trackOccupancy(roadId);
+        }
+        vehicleStore.release(name);
+    }
+
+    public VehicleStateStore getVehicleStore() {
+        return vehicleStore;
+    }
+
+    public int getVehicleHandle(String name) {
+        return vehicleStore.handleOf(name);
     }
 
     public String getVehicleRoadId(String name) {
-        return vehicleRoads.get(name);
+        int handle = vehicleStore.handleOf(name);
+        return handle < 0 ? null : getRoadIdAt(vehicleStore.getRoadIndex(handle));
     }
 
     public String getVehicleThought(String name) {
-        return vehicleThoughts.getOrDefault(name, "Cruising");
+        int handle = vehicleStore.handleOf(name);
+        String thought = handle < 0 ? null : vehicleStore.getThought(handle);
+        return thought == null ? "Cruising" : thought;
     }
 
     public List<Position> getVehiclePath(String name) {
-        return vehiclePaths.getOrDefault(name, new ArrayList<>());
+        int handle = vehicleStore.handleOf(name);
+        List<Position> path = handle < 0 ? null : vehicleStore.getPath(handle);
+        return path == null ? new ArrayList<>() : path;
+    }
+
+    /**
+     * Per-light topics that deliver phase changes to the vehicles facing them.
+     */
+    public SignalSubscriptions getSignals() {
+        return signals;
+    }
+
+    /**
+     * Per-agent random streams derived from the run's seed.
+     */
+    public RandomStreams getRandomStreams() {
+        return randomStreams;
+    }
+
+    /**
+     * In-process mailboxes for typed agent-to-agent events.
+     */
+    public EventBus getEvents() {
+        return events;
     }
 
     public void updateLightState(String name, Position pos, LightState state) {
-        lightPositions.put(name, pos);
+        Position previous = lightPositions.put(name, pos);
+        if (previous != pos)
+            lightGrid.update(name, pos.getX(), pos.getY());
         lightStates.put(name, state);
     }
 
     public Map<String, Position> getVehiclePositions() {
-        return vehiclePositions;
+        return vehiclePositionView;
     }
 
     public Map<String, Double> getVehicleAccels() {
-        return vehicleAccels;
+        return vehicleAccelView;
     }
 
     public Map<String, LightState> getLightStates() {
@@ -166,61 +499,240 @@ public class Environment {
         return lightPositions;
     }
 
+    // World Frames
+
+    /**
+     * Latest published frame. Never null; before the first publish it is empty.
+     */
+    public WorldFrame getFrame() {
+        return currentFrame;
+    }
+
+    /**
+     * Captures the live store into a new immutable frame and makes it current.
+     */
+    public synchronized WorldFrame publishFrame() {
+        int limit = vehicleStore.getHighWater();
+        WorldFrame frame = new WorldFrame(currentFrame.getEpoch() + 1, limit, lightStates, lightPositions,
+                getActiveIncidents());
+        int rows = 0;
+        for (int h = 0; h < limit; h++) {
+            if (vehicleStore.copySlot(h, frame, rows, this::getRoadIdAt))
+                rows++;
+        }
+        WorldFrame sealed = frame.seal(rows);
+        currentFrame = sealed;
+        return sealed;
+    }
+
+    public synchronized void startFramePublisher(long periodMillis) {
+        if (framePublisher != null)
+            return;
+        framePublisher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "frame-publisher");
+            t.setDaemon(true);
+            return t;
+        });
+        framePublisher.scheduleAtFixedRate(() -> {
+            try {
+                expireIncidents(clock.now());
+                publishFrame();
+                refreshEdgeWeights();
+            } catch (Throwable t) {
+                System.err.println("Frame publish failed: " + t.getMessage());
+            }
+        }, 0, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Switches to lock-step mode: agents created afterwards register with the
+     * engine instead of running their own tickers, and the engine publishes
+     * frames itself, so the frame publisher should not be started as well.
+     */
+    public synchronized SimulationEngine startEngine(int parallelism, long periodMillis) {
+        if (engine == null) {
+            engine = new SimulationEngine(this, parallelism);
+            engine.start(periodMillis);
+        }
+        return engine;
+    }
+
+    /**
+     * The lock-step engine, or null when agents tick on their own.
+     */
+    public SimulationEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * When set, agents created afterwards tick on their own virtual thread
+     * instead of a JADE TickerBehaviour.
+     */
+    public void setVirtualTicks(boolean virtualTicks) {
+        this.virtualTicks = virtualTicks;
+    }
+
+    public boolean isVirtualTicks() {
+        return virtualTicks;
+    }
+
+    /**
+     * A vehicle leaving this shard for a road owned by another region, with the
+     * arguments to re-create it there. {@code agentClass} is the class of the
+     * agent hosting it, or null for a vehicle hosted by a population.
+     */
+    public static class Handoff {
+        public final String name;
+        public final int targetRegion;
+        public final String agentClass;
+        public final Object[] args;
+
+        public Handoff(String name, int targetRegion, String agentClass, Object[] args) {
+            this.name = name;
+            this.targetRegion = targetRegion;
+            this.agentClass = agentClass;
+            this.args = args;
+        }
+    }
+
+    /**
+     * Makes this environment the shard for one region of the map. Without a
+     * partition every road is owned locally.
+     */
+    public void setPartition(RegionMap regionMap, int region) {
+        this.regionMap = regionMap;
+        this.region = region;
+    }
+
+    public RegionMap getRegionMap() {
+        return regionMap;
+    }
+
+    public int getRegion() {
+        return region;
+    }
+
+    public boolean ownsRoad(String roadId) {
+        RegionMap map = regionMap;
+        if (map == null)
+            return true;
+        int owner = map.getRegion(roadId);
+        return owner < 0 || owner == region;
+    }
+
+    public void requestHandoff(Handoff handoff) {
+        handoffs.add(handoff);
+    }
+
+    public Handoff pollHandoff() {
+        return handoffs.poll();
+    }
+
     // Spatial Queries
     public List<String> getNearbyAgents(Position myPos, double radius, String excludeName) {
-        return vehiclePositions.entrySet().parallelStream()
-                .filter(e -> !e.getKey().equals(excludeName))
-                .filter(e -> e.getValue().distanceTo(myPos) <= radius)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
+        List<String> nearby = new ArrayList<>();
+        vehicleGrid.forEachCandidate(myPos.getX(), myPos.getY(), radius, name -> {
+            if (name.equals(excludeName))
+                return;
+            int handle = vehicleStore.handleOf(name);
+            if (handle < 0)
+                return;
+            if (Geometry.within(vehicleStore.getX(handle), vehicleStore.getY(handle), vehicleStore.getZ(handle),
+                    myPos.getX(), myPos.getY(), myPos.getZ(), radius))
+                nearby.add(name);
+        });
+        return nearby;
     }
 
     public String getNearestLight(Position myPos, double radius) {
-        String nearest = null;
-        double minDist = radius;
-
-        for (Map.Entry<String, Position> entry : lightPositions.entrySet()) {
-            double dist = entry.getValue().distanceTo(myPos);
-            if (dist < minDist) {
-                minDist = dist;
-                nearest = entry.getKey();
+        String[] nearest = new String[1];
+        double[] minDistSq = { radius * radius };
+        lightGrid.forEachCandidate(myPos.getX(), myPos.getY(), radius, name -> {
+            Position lightPos = lightPositions.get(name);
+            if (lightPos == null)
+                return;
+            double distSq = lightPos.distanceSquaredTo(myPos);
+            if (distSq < minDistSq[0]) {
+                minDistSq[0] = distSq;
+                nearest[0] = name;
             }
-        }
-        return nearest;
+        });
+        return nearest[0];
     }
 
     public RoadSegment getRoadAt(Position pos) {
-        RoadSegment nearest = null;
-        double minDist = Double.MAX_VALUE;
-        for (RoadSegment road : roads.values()) {
-            Position mid = new Position((road.getStart().getX() + road.getEnd().getX()) / 2,
-                    (road.getStart().getY() + road.getEnd().getY()) / 2);
-            double dist = pos.distanceTo(mid);
-            if (dist < minDist) {
-                minDist = dist;
-                nearest = road;
+        RoadLocator.Hit hit = locateRoad(pos);
+        return hit == null ? null : hit.road;
+    }
+
+    /**
+     * Nearest road to the point by true distance to its centre-line, together with
+     * the offset along the road of the closest point.
+     */
+    public RoadLocator.Hit locateRoad(Position pos) {
+        return getRoadLocator().nearest(pos.getX(), pos.getY());
+    }
+
+    private RoadLocator getRoadLocator() {
+        RoadLocator locator = roadLocator;
+        if (locator == null) {
+            synchronized (roadIndices) {
+                locator = roadLocator;
+                if (locator == null) {
+                    locator = new RoadLocator(roads.values(), GRID_CELL_SIZE);
+                    roadLocator = locator;
+                }
             }
         }
-        return nearest;
+        return locator;
     }
 
     public int countVehiclesOnRoad(String roadId) {
-        RoadSegment road = roads.get(roadId);
-        if (road == null)
-            return 0;
-
-        int count = 0;
-        for (Position pos : vehiclePositions.values()) {
-            double d = pos.distanceTo(road.getStart()) + pos.distanceTo(road.getEnd());
-            if (Math.abs(d - road.getLength()) < 20.0) {
-                count++;
-            }
-        }
-        return count;
+        RoadOccupancy occupancy = roadOccupancy.get(roadId);
+        return occupancy == null ? 0 : occupancy.count();
+    }
+
+    public List<String> getVehiclesOnRoad(String roadId) {
+        RoadOccupancy occupancy = roadOccupancy.get(roadId);
+        return occupancy == null ? new ArrayList<>() : occupancy.getVehiclesInOrder();
+    }
+
+    /**
+     * Lane neighbours of a vehicle on the given road, or null if it is not
+     * registered there.
+     */
+    public RoadOccupancy.Neighbours getNeighbours(String roadId, String name) {
+        RoadOccupancy occupancy = roadOccupancy.get(roadId);
+        return occupancy == null ? null : occupancy.getNeighbours(name);
+    }
+
+    /**
+     * Vehicle closest to the start of the road in the given lane, or null.
+     */
+    public RoadOccupancy.Neighbour getRearmostVehicle(String roadId, int lane) {
+        RoadOccupancy occupancy = roadOccupancy.get(roadId);
+        return occupancy == null ? null : occupancy.getRearmost(lane);
+    }
+
+    private RoadOccupancy getRoadOccupancy(String roadId) {
+        return roadOccupancy.computeIfAbsent(roadId, RoadOccupancy::new);
     }
 
     public void updateHistoricalCongestion(String roadId, double level) {
         historicalCongestion.put(roadId, level);
+        if (Math.abs(level - epochBaseline.getOrDefault(roadId, 0.0)) > CONGESTION_EPOCH_THRESHOLD) {
+            epochBaseline.put(roadId, level);
+            historicalEpoch.incrementAndGet();
+            congestionEpoch.incrementAndGet();
+        }
+    }
+
+    private void trackOccupancy(String roadId) {
+        int count = countVehiclesOnRoad(roadId);
+        if (Math.abs(count - occupancyBaseline.getOrDefault(roadId, 0)) > CONGESTION_EPOCH_THRESHOLD) {
+            occupancyBaseline.put(roadId, count);
+            congestionEpoch.incrementAndGet();
+        }
     }
 
     public double getHistoricalCongestion(String roadId) {
@@ -0,0 +1,77 @@
+package com.traffic.environment;
+
+import com.traffic.model.TrafficEvent;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process mailboxes for {@link TrafficEvent}s. Each local recipient owns a
+ * growable ring buffer; senders append under the mailbox's lock and the owner
+ * takes the whole batch once per tick. Recipients without a mailbox are not in
+ * this JVM, and callers fall back to ACL for them.
+ */
+public class EventBus {
+    private static final TrafficEvent[] NONE = new TrafficEvent[0];
+
+    private final Map<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    private static class Mailbox {
+        private TrafficEvent[] ring = new TrafficEvent[8];
+        private int head = 0;
+        private int size = 0;
+
+        synchronized void offer(TrafficEvent event) {
+            if (size == ring.length) {
+                TrafficEvent[] grown = new TrafficEvent[ring.length * 2];
+                for (int i = 0; i < size; i++)
+                    grown[i] = ring[(head + i) & (ring.length - 1)];
+                ring = grown;
+                head = 0;
+            }
+            ring[(head + size) & (ring.length - 1)] = event;
+            size++;
+        }
+
+        synchronized TrafficEvent[] takeAll() {
+            if (size == 0)
+                return NONE;
+            TrafficEvent[] batch = new TrafficEvent[size];
+            for (int i = 0; i < size; i++) {
+                int slot = (head + i) & (ring.length - 1);
+                batch[i] = ring[slot];
+                ring[slot] = null;
+            }
+            head = 0;
+            size = 0;
+            return batch;
+        }
+    }
+
+    public void register(String name) {
+        mailboxes.computeIfAbsent(name, k -> new Mailbox());
+    }
+
+    public void unregister(String name) {
+        mailboxes.remove(name);
+    }
+
+    /**
+     * Queues the event for a local recipient. Returns false if the recipient has
+     * no mailbox in this JVM.
+     */
+    public boolean post(String recipient, TrafficEvent event) {
+        Mailbox mailbox = mailboxes.get(recipient);
+        if (mailbox == null)
+            return false;
+        mailbox.offer(event);
+        return true;
+    }
+
+    /**
+     * Removes and returns everything queued for the recipient, oldest first.
+     */
+    public TrafficEvent[] drain(String recipient) {
+        Mailbox mailbox = mailboxes.get(recipient);
+        return mailbox == null ? NONE : mailbox.takeAll();
+    }
+}
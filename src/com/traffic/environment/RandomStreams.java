@@ -0,0 +1,41 @@
+package com.traffic.environment;
+
+import java.util.SplittableRandom;
+
+/**
+ * Source of per-agent random streams derived from one global seed
+ * (-Dtraffic.seed). A stream depends only on the seed and the agent's name, so
+ * runs with the same seed repeat bit-for-bit regardless of thread scheduling,
+ * and agents never contend on a shared generator.
+ */
+public class RandomStreams {
+    private final long seed;
+
+    public RandomStreams(long seed) {
+        this.seed = seed;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * A new generator for the named agent. Not thread-safe: each agent keeps and
+     * uses its own.
+     */
+    public SplittableRandom forAgent(String name) {
+        long h = 0xcbf29ce484222325L; // FNV-1a over the name
+        for (int i = 0; i < name.length(); i++) {
+            h ^= name.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return new SplittableRandom(mix(seed ^ mix(h)));
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,183 @@
+package com.traffic.environment;
+
+import com.traffic.model.Geometry;
+import com.traffic.model.Position;
+import com.traffic.model.RoadSegment;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Static bucketed index over road centre-lines. Each road is flattened into a
+ * polyline whose pieces are filed under every grid cell they overlap; nearest
+ * queries search outward ring by ring using true point-to-segment distance.
+ * Built once per map version and never mutated.
+ */
+public class RoadLocator {
+    private final double cellSize;
+    private final RoadSegment[] roads;
+    // Polyline pieces: endpoints, owning road and distance along the road at each end
+    private final double[] ax, ay, bx, by, sa, sb;
+    private final int[] pieceRoad;
+    private final Map<Long, int[]> cells;
+    private final int minCx, maxCx, minCy, maxCy;
+
+    /**
+     * Result of a nearest-road query.
+     */
+    public static class Hit {
+        public final RoadSegment road;
+        public final double offset; // distance along the road of the closest point
+        public final double distance; // distance from the query point to the road
+
+        Hit(RoadSegment road, double offset, double distance) {
+            this.road = road;
+            this.offset = offset;
+            this.distance = distance;
+        }
+    }
+
+    public RoadLocator(Collection<RoadSegment> roadSet, double cellSize) {
+        this.cellSize = cellSize;
+        this.roads = roadSet.toArray(new RoadSegment[0]);
+
+        List<double[]> pieces = new ArrayList<>();
+        List<Integer> owners = new ArrayList<>();
+        Position p = new Position(0, 0);
+        for (int r = 0; r < roads.length; r++) {
+            RoadSegment road = roads[r];
+            double length = road.getLength();
+            int steps = road.isCurved() ? Math.max(16, (int) Math.ceil(length / (cellSize / 8))) : 1;
+            double prevS = 0;
+            double prevX = road.getStart().getX();
+            double prevY = road.getStart().getY();
+            for (int i = 1; i <= steps; i++) {
+                double s = length * i / steps;
+                road.getPointAt(road.getParameterAtDistance(s), p);
+                pieces.add(new double[] { prevX, prevY, p.getX(), p.getY(), prevS, s });
+                owners.add(r);
+                prevS = s;
+                prevX = p.getX();
+                prevY = p.getY();
+            }
+        }
+
+        int n = pieces.size();
+        ax = new double[n];
+        ay = new double[n];
+        bx = new double[n];
+        by = new double[n];
+        sa = new double[n];
+        sb = new double[n];
+        pieceRoad = new int[n];
+        Map<Long, List<Integer>> buckets = new HashMap<>();
+        int loX = Integer.MAX_VALUE, hiX = Integer.MIN_VALUE, loY = Integer.MAX_VALUE, hiY = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            double[] piece = pieces.get(i);
+            ax[i] = piece[0];
+            ay[i] = piece[1];
+            bx[i] = piece[2];
+            by[i] = piece[3];
+            sa[i] = piece[4];
+            sb[i] = piece[5];
+            pieceRoad[i] = owners.get(i);
+
+            int c0x = cellIndex(Math.min(ax[i], bx[i]));
+            int c1x = cellIndex(Math.max(ax[i], bx[i]));
+            int c0y = cellIndex(Math.min(ay[i], by[i]));
+            int c1y = cellIndex(Math.max(ay[i], by[i]));
+            for (int cx = c0x; cx <= c1x; cx++)
+                for (int cy = c0y; cy <= c1y; cy++)
+                    buckets.computeIfAbsent(cellKey(cx, cy), k -> new ArrayList<>()).add(i);
+            loX = Math.min(loX, c0x);
+            hiX = Math.max(hiX, c1x);
+            loY = Math.min(loY, c0y);
+            hiY = Math.max(hiY, c1y);
+        }
+        cells = new HashMap<>(buckets.size() * 2);
+        for (Map.Entry<Long, List<Integer>> e : buckets.entrySet())
+            cells.put(e.getKey(), e.getValue().stream().mapToInt(Integer::intValue).toArray());
+        minCx = loX;
+        maxCx = hiX;
+        minCy = loY;
+        maxCy = hiY;
+    }
+
+    /**
+     * Closest road to the point, or null if the index is empty.
+     */
+    public Hit nearest(double x, double y) {
+        if (cells.isEmpty())
+            return null;
+        int cx = cellIndex(x);
+        int cy = cellIndex(y);
+        // Rings closer than this do not touch the indexed area; rings beyond the last lie outside it
+        int firstRing = Math.max(Math.max(minCx - cx, cx - maxCx), Math.max(Math.max(minCy - cy, cy - maxCy), 0));
+        int lastRing = Math.max(Math.max(Math.abs(cx - minCx), Math.abs(cx - maxCx)),
+                Math.max(Math.abs(cy - minCy), Math.abs(cy - maxCy)));
+
+        Search search = new Search(x, y);
+        for (int ring = firstRing; ring <= lastRing; ring++) {
+            if (ring == 0) {
+                visit(search, cx, cy);
+            } else {
+                for (int gx = Math.max(cx - ring, minCx); gx <= Math.min(cx + ring, maxCx); gx++) {
+                    visit(search, gx, cy - ring);
+                    visit(search, gx, cy + ring);
+                }
+                for (int gy = Math.max(cy - ring + 1, minCy); gy <= Math.min(cy + ring - 1, maxCy); gy++) {
+                    visit(search, cx - ring, gy);
+                    visit(search, cx + ring, gy);
+                }
+            }
+            // Anything in the next ring is at least ring * cellSize away
+            double bound = ring * cellSize;
+            if (search.best >= 0 && search.bestDistSq <= bound * bound)
+                break;
+        }
+        int best = search.best;
+        if (best < 0)
+            return null;
+        return new Hit(roads[pieceRoad[best]], sa[best] + (sb[best] - sa[best]) * search.bestT,
+                Math.sqrt(search.bestDistSq));
+    }
+
+    private static class Search {
+        final double x;
+        final double y;
+        int best = -1;
+        double bestDistSq = Double.MAX_VALUE;
+        double bestT = 0;
+
+        Search(double x, double y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    private void visit(Search search, int gx, int gy) {
+        int[] members = cells.get(cellKey(gx, gy));
+        if (members == null)
+            return;
+        for (int i : members) {
+            double t = Geometry.projectOntoSegment(search.x, search.y, ax[i], ay[i], bx[i], by[i]);
+            double distSq = Geometry.distanceSquared(search.x, search.y, ax[i] + (bx[i] - ax[i]) * t,
+                    ay[i] + (by[i] - ay[i]) * t);
+            if (distSq < search.bestDistSq) {
+                search.bestDistSq = distSq;
+                search.best = i;
+                search.bestT = t;
+            }
+        }
+    }
+
+    private int cellIndex(double coord) {
+        return (int) Math.floor(coord / cellSize);
+    }
+
+    private static long cellKey(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xffffffffL);
+    }
+}
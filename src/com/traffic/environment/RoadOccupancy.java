@@ -0,0 +1,232 @@
+package com.traffic.environment;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exact set of vehicles currently on one road. Each lane keeps its vehicles
+ * ordered by progress (rear-most first) and every vehicle knows its slot, so
+ * the leader and follower in the same lane are one array step away and the
+ * neighbours in an adjacent lane are a binary search away.
+ */
+public class RoadOccupancy {
+    private final String roadId;
+    private final Map<String, Slot> slots = new HashMap<>();
+    private final List<List<Slot>> lanes = new ArrayList<>();
+    private volatile int count = 0;
+
+    private static class Slot {
+        final String name;
+        double progress;
+        int lane;
+        int index;
+
+        Slot(String name, int lane, double progress) {
+            this.name = name;
+            this.lane = lane;
+            this.progress = progress;
+        }
+    }
+
+    /**
+     * Another vehicle as seen from the queried one.
+     */
+    public static class Neighbour {
+        public final String name;
+        public final double progress;
+
+        Neighbour(String name, double progress) {
+            this.name = name;
+            this.progress = progress;
+        }
+    }
+
+    /**
+     * Leader/follower in the vehicle's own lane and the closest vehicles ahead and
+     * behind in the lanes to either side. Left is lane - 1, right is lane + 1.
+     * Missing neighbours are null.
+     */
+    public static class Neighbours {
+        public Neighbour leader;
+        public Neighbour follower;
+        public Neighbour leftAhead;
+        public Neighbour leftBehind;
+        public Neighbour rightAhead;
+        public Neighbour rightBehind;
+    }
+
+    public RoadOccupancy(String roadId) {
+        this.roadId = roadId;
+    }
+
+    public String getRoadId() {
+        return roadId;
+    }
+
+    /**
+     * Inserts or moves a vehicle. A NaN progress keeps the vehicle's previous
+     * progress (or 0 if it is new to this road).
+     */
+    public synchronized void update(String name, int lane, double progress) {
+        lane = Math.max(0, lane);
+        Slot slot = slots.get(name);
+        if (slot == null) {
+            slot = new Slot(name, lane, Double.isNaN(progress) ? 0.0 : progress);
+            slots.put(name, slot);
+            insert(slot);
+            count = slots.size();
+            return;
+        }
+        if (slot.lane != lane) {
+            detach(slot);
+            slot.lane = lane;
+            if (!Double.isNaN(progress))
+                slot.progress = progress;
+            insert(slot);
+            return;
+        }
+        if (Double.isNaN(progress) || slot.progress == progress)
+            return;
+        slot.progress = progress;
+        // Vehicles rarely overtake within a lane, so this is usually zero or one swap
+        List<Slot> order = lanes.get(lane);
+        int i = slot.index;
+        while (i + 1 < order.size() && ahead(slot, order.get(i + 1))) {
+            swap(order, i, i + 1);
+            i++;
+        }
+        while (i > 0 && ahead(order.get(i - 1), slot)) {
+            swap(order, i, i - 1);
+            i--;
+        }
+    }
+
+    public synchronized void remove(String name) {
+        Slot slot = slots.remove(name);
+        if (slot != null) {
+            detach(slot);
+            count = slots.size();
+        }
+    }
+
+    public int count() {
+        return count;
+    }
+
+    /**
+     * All vehicles rear-most first, merged from the already ordered lanes.
+     */
+    public synchronized List<String> getVehiclesInOrder() {
+        List<String> names = new ArrayList<>(slots.size());
+        int[] cursor = new int[lanes.size()];
+        while (names.size() < slots.size()) {
+            Slot next = null;
+            int from = -1;
+            for (int l = 0; l < cursor.length; l++) {
+                List<Slot> order = lanes.get(l);
+                if (cursor[l] < order.size() && (next == null || ahead(next, order.get(cursor[l])))) {
+                    next = order.get(cursor[l]);
+                    from = l;
+                }
+            }
+            cursor[from]++;
+            names.add(next.name);
+        }
+        return names;
+    }
+
+    /**
+     * Neighbours of the named vehicle, or null if it is not on this road.
+     */
+    public synchronized Neighbours getNeighbours(String name) {
+        Slot slot = slots.get(name);
+        if (slot == null)
+            return null;
+        Neighbours result = new Neighbours();
+        List<Slot> own = lanes.get(slot.lane);
+        if (slot.index + 1 < own.size())
+            result.leader = neighbour(own.get(slot.index + 1));
+        if (slot.index > 0)
+            result.follower = neighbour(own.get(slot.index - 1));
+
+        if (slot.lane > 0) {
+            List<Slot> left = lanes.get(slot.lane - 1);
+            int split = firstAhead(left, slot.progress);
+            result.leftAhead = split < left.size() ? neighbour(left.get(split)) : null;
+            result.leftBehind = split > 0 ? neighbour(left.get(split - 1)) : null;
+        }
+        if (slot.lane + 1 < lanes.size()) {
+            List<Slot> right = lanes.get(slot.lane + 1);
+            int split = firstAhead(right, slot.progress);
+            result.rightAhead = split < right.size() ? neighbour(right.get(split)) : null;
+            result.rightBehind = split > 0 ? neighbour(right.get(split - 1)) : null;
+        }
+        return result;
+    }
+
+    /**
+     * Rear-most vehicle in the lane, or null if the lane is empty.
+     */
+    public synchronized Neighbour getRearmost(int lane) {
+        if (lane < 0 || lane >= lanes.size() || lanes.get(lane).isEmpty())
+            return null;
+        return neighbour(lanes.get(lane).get(0));
+    }
+
+    private static Neighbour neighbour(Slot slot) {
+        return new Neighbour(slot.name, slot.progress);
+    }
+
+    private static boolean ahead(Slot a, Slot b) {
+        return a.progress > b.progress || (a.progress == b.progress && a.name.compareTo(b.name) > 0);
+    }
+
+    private static int firstAhead(List<Slot> order, double progress) {
+        int lo = 0;
+        int hi = order.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (order.get(mid).progress <= progress)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    private void insert(Slot slot) {
+        while (lanes.size() <= slot.lane)
+            lanes.add(new ArrayList<>());
+        List<Slot> order = lanes.get(slot.lane);
+        int lo = 0;
+        int hi = order.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ahead(slot, order.get(mid)))
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        order.add(lo, slot);
+        for (int i = lo; i < order.size(); i++)
+            order.get(i).index = i;
+    }
+
+    private void detach(Slot slot) {
+        List<Slot> order = lanes.get(slot.lane);
+        order.remove(slot.index);
+        for (int i = slot.index; i < order.size(); i++)
+            order.get(i).index = i;
+    }
+
+    private static void swap(List<Slot> order, int i, int j) {
+        Slot a = order.get(i);
+        Slot b = order.get(j);
+        order.set(i, b);
+        order.set(j, a);
+        a.index = j;
+        b.index = i;
+    }
+}
@@ -0,0 +1,79 @@
+package com.traffic.environment;
+
+import com.traffic.model.LightState;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Topic per traffic light. A light binds itself to the approach road it
+ * controls; vehicles subscribe to the light of the road they are on and are
+ * called back in-process on every phase change, so a switch only reaches the
+ * vehicles that actually face that light.
+ */
+public class SignalSubscriptions {
+
+    public interface Listener {
+        /** Called on the light's thread; implementations should only record the state. */
+        void onSignalChange(String lightName, LightState state);
+    }
+
+    private final Map<String, String> lightByRoad = new ConcurrentHashMap<>();
+    private final Map<String, LightState> stateByLight = new ConcurrentHashMap<>();
+    private final Map<String, Set<Listener>> subscribersByLight = new ConcurrentHashMap<>();
+
+    public void bind(String lightName, String roadId, LightState initialState) {
+        lightByRoad.put(roadId, lightName);
+        stateByLight.put(lightName, initialState);
+    }
+
+    public void unbind(String lightName) {
+        lightByRoad.values().removeIf(lightName::equals);
+        stateByLight.remove(lightName);
+        subscribersByLight.remove(lightName);
+    }
+
+    /**
+     * Name of the light controlling the road, or null if it has none.
+     */
+    public String getLight(String roadId) {
+        return lightByRoad.get(roadId);
+    }
+
+    /**
+     * Subscribes to the light controlling the road and immediately delivers its
+     * current state. Returns the light's name, or null if the road has no light.
+     */
+    public String subscribe(String roadId, Listener listener) {
+        String lightName = lightByRoad.get(roadId);
+        if (lightName == null)
+            return null;
+        subscribersByLight.computeIfAbsent(lightName, k -> ConcurrentHashMap.newKeySet()).add(listener);
+        LightState state = stateByLight.get(lightName);
+        if (state != null)
+            listener.onSignalChange(lightName, state);
+        return lightName;
+    }
+
+    public void unsubscribe(String lightName, Listener listener) {
+        if (lightName == null)
+            return;
+        Set<Listener> subscribers = subscribersByLight.get(lightName);
+        if (subscribers != null)
+            subscribers.remove(listener);
+    }
+
+    public void publish(String lightName, LightState state) {
+        stateByLight.put(lightName, state);
+        Set<Listener> subscribers = subscribersByLight.get(lightName);
+        if (subscribers == null)
+            return;
+        for (Listener listener : subscribers)
+            listener.onSignalChange(lightName, state);
+    }
+
+    public int getSubscriberCount(String lightName) {
+        Set<Listener> subscribers = subscribersByLight.get(lightName);
+        return subscribers == null ? 0 : subscribers.size();
+    }
+}
@@ -0,0 +1,74 @@
+package com.traffic.environment;
+
+/**
+ * Simulated time in milliseconds since the start of the run. In real-time mode
+ * it follows the wall clock scaled by the time multiplier and stands still while
+ * paused; in stepped mode it only moves when the engine advances it, so a
+ * headless run can go as fast as the CPU allows.
+ */
+public class SimulationClock {
+    /** Nominal length of one agent tick in wall-clock milliseconds. */
+    public static final long TICK_MILLIS = 50;
+    /** Simulated milliseconds per hour of the day cycle (10s = 1 hour). */
+    public static final long MILLIS_PER_HOUR = 10_000;
+
+    private volatile boolean stepped = false;
+    private volatile double multiplier = 1.0;
+    private volatile boolean paused = false;
+    // Simulated time at the last rebase, and the wall-clock instant of that rebase
+    private long baseMillis = 0;
+    private long baseNanos = System.nanoTime();
+
+    public synchronized long now() {
+        if (stepped || paused)
+            return baseMillis;
+        return baseMillis + (long) ((System.nanoTime() - baseNanos) / 1_000_000.0 * multiplier);
+    }
+
+    /**
+     * Hour of the simulated day, 0-23.
+     */
+    public int getHourOfDay() {
+        return (int) ((now() / MILLIS_PER_HOUR) % 24);
+    }
+
+    public boolean isStepped() {
+        return stepped;
+    }
+
+    /**
+     * Detaches the clock from the wall clock; from now on only {@link #advance}
+     * moves it.
+     */
+    public synchronized void setStepped(boolean stepped) {
+        rebase();
+        this.stepped = stepped;
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    public synchronized void setMultiplier(double multiplier) {
+        rebase();
+        this.multiplier = multiplier;
+    }
+
+    public synchronized void setPaused(boolean paused) {
+        rebase();
+        this.paused = paused;
+    }
+
+    /**
+     * Moves a stepped clock forward by one tick's worth of simulated time.
+     */
+    public synchronized void tick() {
+        if (stepped)
+            baseMillis += (long) (TICK_MILLIS * multiplier);
+    }
+
+    private void rebase() {
+        baseMillis = now();
+        baseNanos = System.nanoTime();
+    }
+}
@@ -0,0 +1,160 @@
+package com.traffic.environment;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Opt-in lock-step driver for all agents. Each step runs in phases separated by
+ * barriers: every participant perceives (in parallel), then every participant
+ * decides and integrates (in parallel), then the world frame is committed, then
+ * pending messages are delivered (in parallel). Participants are stepped in name
+ * order and split into fork-join tasks, so no agent sees another one mid-update.
+ */
+public class SimulationEngine {
+    private static final int BATCH_SIZE = 64;
+
+    /**
+     * Per-agent callbacks for one step. Each phase only touches the
+     * participant's own state plus the shared environment.
+     */
+    public interface Participant {
+        String getName();
+
+        void perceivePhase();
+
+        void decidePhase();
+
+        void deliverPhase();
+    }
+
+    private enum Phase {
+        PERCEIVE, DECIDE, DELIVER
+    }
+
+    private final Environment env;
+    private final ForkJoinPool pool;
+    private final Map<String, Participant> participants = new ConcurrentHashMap<>();
+    private volatile long stepCount = 0;
+    private volatile boolean running = false;
+    private Thread driver;
+
+    public SimulationEngine(Environment env, int parallelism) {
+        this.env = env;
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+    }
+
+    public void register(Participant participant) {
+        participants.put(participant.getName(), participant);
+    }
+
+    public void unregister(String name) {
+        participants.remove(name);
+    }
+
+    public int getParticipantCount() {
+        return participants.size();
+    }
+
+    public long getStepCount() {
+        return stepCount;
+    }
+
+    /**
+     * Advances every registered participant by one tick.
+     */
+    public synchronized void step() {
+        Participant[] batch = participants.values().toArray(new Participant[0]);
+        Arrays.sort(batch, Comparator.comparing(Participant::getName));
+
+        pool.invoke(new PhaseTask(batch, 0, batch.length, Phase.PERCEIVE));
+        pool.invoke(new PhaseTask(batch, 0, batch.length, Phase.DECIDE));
+        env.getClock().tick();
+        env.expireIncidents(env.getClock().now());
+        env.publishFrame();
+        env.refreshEdgeWeights();
+        pool.invoke(new PhaseTask(batch, 0, batch.length, Phase.DELIVER));
+        stepCount++;
+    }
+
+    /**
+     * Steps on a daemon thread, at most once every {@code periodMillis}
+     * (0 = as fast as possible). Paused environments are not stepped.
+     */
+    public synchronized void start(long periodMillis) {
+        if (running)
+            return;
+        running = true;
+        driver = new Thread(() -> {
+            while (running) {
+                long started = System.nanoTime();
+                try {
+                    if (!env.isPaused())
+                        step();
+                } catch (Throwable t) {
+                    System.err.println("Simulation step failed: " + t.getMessage());
+                }
+                long remaining = periodMillis - (System.nanoTime() - started) / 1_000_000;
+                try {
+                    if (remaining > 0)
+                        Thread.sleep(remaining);
+                    else if (env.isPaused())
+                        Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }, "simulation-engine");
+        driver.setDaemon(true);
+        driver.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (driver != null)
+            driver.interrupt();
+        driver = null;
+    }
+
+    private static class PhaseTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Participant[] batch;
+        private final int from;
+        private final int to;
+        private final Phase phase;
+
+        PhaseTask(Participant[] batch, int from, int to, Phase phase) {
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+            this.phase = phase;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BATCH_SIZE) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new PhaseTask(batch, from, mid, phase), new PhaseTask(batch, mid, to, phase));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                Participant p = batch[i];
+                try {
+                    switch (phase) {
+                        case PERCEIVE -> p.perceivePhase();
+                        case DECIDE -> p.decidePhase();
+                        case DELIVER -> p.deliverPhase();
+                    }
+                } catch (Throwable t) {
+                    System.err.println("CRITICAL ERROR in Agent " + p.getName() + ": " + t.getMessage());
+                    t.printStackTrace();
+                }
+            }
+        }
+    }
+}
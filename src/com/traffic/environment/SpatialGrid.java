@@ -0,0 +1,93 @@
+package com.traffic.environment;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Uniform grid that buckets named points by cell, so radius queries only visit
+ * the cells overlapped by the query circle instead of every tracked point.
+ */
+public class SpatialGrid {
+    private final double cellSize;
+    private final Map<Long, Set<String>> cells = new ConcurrentHashMap<>();
+    private final Map<String, Long> cellOf = new ConcurrentHashMap<>();
+
+    public SpatialGrid(double cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    public void update(String name, double x, double y) {
+        long key = cellKey(cellIndex(x), cellIndex(y));
+        Long previous = cellOf.put(name, key);
+        if (previous != null) {
+            if (previous == key)
+                return;
+            removeFromCell(previous, name);
+        }
+        cells.compute(key, (k, members) -> {
+            if (members == null)
+                members = ConcurrentHashMap.newKeySet();
+            members.add(name);
+            return members;
+        });
+    }
+
+    public void remove(String name) {
+        Long previous = cellOf.remove(name);
+        if (previous != null)
+            removeFromCell(previous, name);
+    }
+
+    /**
+     * Visits every name whose cell overlaps the square bounding the query circle.
+     * Callers still apply the exact distance test.
+     */
+    public void forEachCandidate(double x, double y, double radius, Consumer<String> visitor) {
+        int minCx = cellIndex(x - radius);
+        int maxCx = cellIndex(x + radius);
+        int minCy = cellIndex(y - radius);
+        int maxCy = cellIndex(y + radius);
+
+        long span = (long) (maxCx - minCx + 1) * (maxCy - minCy + 1);
+        if (span > cells.size()) {
+            // Query covers more cells than are occupied: walk the occupied ones instead
+            for (Map.Entry<Long, Set<String>> entry : cells.entrySet()) {
+                long key = entry.getKey();
+                int cx = (int) (key >> 32);
+                int cy = (int) key;
+                if (cx >= minCx && cx <= maxCx && cy >= minCy && cy <= maxCy)
+                    entry.getValue().forEach(visitor);
+            }
+            return;
+        }
+
+        for (int cx = minCx; cx <= maxCx; cx++) {
+            for (int cy = minCy; cy <= maxCy; cy++) {
+                Set<String> members = cells.get(cellKey(cx, cy));
+                if (members != null)
+                    members.forEach(visitor);
+            }
+        }
+    }
+
+    public int size() {
+        return cellOf.size();
+    }
+
+    private void removeFromCell(long key, String name) {
+        cells.computeIfPresent(key, (k, members) -> {
+            members.remove(name);
+            return members.isEmpty() ? null : members;
+        });
+    }
+
+    private int cellIndex(double coord) {
+        return (int) Math.floor(coord / cellSize);
+    }
+
+    private static long cellKey(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xffffffffL);
+    }
+}
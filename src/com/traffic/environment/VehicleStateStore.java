@@ -0,0 +1,336 @@
+package com.traffic.environment;
+
+import com.traffic.model.Position;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntFunction;
+
+/**
+ * Structure-of-arrays store for dynamic vehicle state, addressed by dense int
+ * handles. Columns live in fixed-size pages that are never relocated, so an
+ * agent can write its own slot without locking while the store grows; released
+ * handles go on a free-list and are reused before the store grows again.
+ */
+public class VehicleStateStore {
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private static final class Page {
+        final double[] x = new double[PAGE_SIZE];
+        final double[] y = new double[PAGE_SIZE];
+        final double[] z = new double[PAGE_SIZE];
+        final double[] speed = new double[PAGE_SIZE];
+        final double[] accel = new double[PAGE_SIZE];
+        final double[] progress = new double[PAGE_SIZE];
+        final int[] lane = new int[PAGE_SIZE];
+        final int[] roadIndex = new int[PAGE_SIZE];
+        final String[] names = new String[PAGE_SIZE];
+        final String[] thoughts = new String[PAGE_SIZE];
+        final Object[] paths = new Object[PAGE_SIZE];
+        final AtomicIntegerArray seq = new AtomicIntegerArray(PAGE_SIZE);
+    }
+
+    private volatile Page[] pages = new Page[0];
+    private volatile int highWater = 0;
+    private int[] freeList = new int[64];
+    private int freeCount = 0;
+    private final Map<String, Integer> handles = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the handle already bound to the name, or binds a fresh one.
+     */
+    public int allocate(String name) {
+        Integer existing = handles.get(name);
+        if (existing != null)
+            return existing;
+        synchronized (this) {
+            existing = handles.get(name);
+            if (existing != null)
+                return existing;
+
+            int handle;
+            if (freeCount > 0) {
+                handle = freeList[--freeCount];
+            } else {
+                handle = highWater;
+                if ((handle >> PAGE_BITS) >= pages.length) {
+                    Page[] grown = Arrays.copyOf(pages, pages.length + 1);
+                    grown[pages.length] = new Page();
+                    pages = grown;
+                }
+                highWater = handle + 1;
+            }
+
+            Page p = page(handle);
+            int i = handle & PAGE_MASK;
+            p.x[i] = 0;
+            p.y[i] = 0;
+            p.z[i] = 0;
+            p.speed[i] = 0;
+            p.accel[i] = 0;
+            p.progress[i] = 0;
+            p.lane[i] = 0;
+            p.roadIndex[i] = -1;
+            p.thoughts[i] = null;
+            p.paths[i] = null;
+            p.names[i] = name;
+            handles.put(name, handle);
+            return handle;
+        }
+    }
+
+    public synchronized void release(String name) {
+        Integer handle = handles.remove(name);
+        if (handle == null)
+            return;
+        Page p = page(handle);
+        int i = handle & PAGE_MASK;
+        p.names[i] = null;
+        p.thoughts[i] = null;
+        p.paths[i] = null;
+        if (freeCount == freeList.length)
+            freeList = Arrays.copyOf(freeList, freeCount * 2);
+        freeList[freeCount++] = handle;
+    }
+
+    /**
+     * Handle bound to the name, or -1 if the vehicle is not tracked.
+     */
+    public int handleOf(String name) {
+        Integer handle = handles.get(name);
+        return handle == null ? -1 : handle;
+    }
+
+    public int size() {
+        return handles.size();
+    }
+
+    /**
+     * Exclusive upper bound of handles ever allocated; scans run over
+     * [0, highWater) and skip slots where {@link #isLive(int)} is false.
+     */
+    public int getHighWater() {
+        return highWater;
+    }
+
+    public boolean isLive(int handle) {
+        return page(handle).names[handle & PAGE_MASK] != null;
+    }
+
+    /**
+     * Opens a write section on a slot. Snapshots taken while a section is open
+     * wait for it to close, so a vehicle is never captured half-updated.
+     */
+    public void beginWrite(int handle) {
+        page(handle).seq.incrementAndGet(handle & PAGE_MASK);
+    }
+
+    public void endWrite(int handle) {
+        page(handle).seq.incrementAndGet(handle & PAGE_MASK);
+    }
+
+    /**
+     * Copies a live slot into row {@code row} of a frame under construction.
+     * Returns false if the slot is free.
+     */
+    boolean copySlot(int handle, WorldFrame frame, int row, IntFunction<String> roadIds) {
+        Page p = page(handle);
+        int i = handle & PAGE_MASK;
+        while (true) {
+            int before = p.seq.get(i);
+            if ((before & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            String name = p.names[i];
+            frame.names[row] = name;
+            frame.x[row] = p.x[i];
+            frame.y[row] = p.y[i];
+            frame.z[row] = p.z[i];
+            frame.speed[row] = p.speed[i];
+            frame.accel[row] = p.accel[i];
+            frame.progress[row] = p.progress[i];
+            frame.lane[row] = p.lane[i];
+            int roadIndex = p.roadIndex[i];
+            frame.thoughts[row] = p.thoughts[i];
+            frame.paths[row] = p.paths[i];
+            VarHandle.acquireFence();
+            if (p.seq.get(i) == before) {
+                if (name == null)
+                    return false;
+                frame.roadIds[row] = roadIds.apply(roadIndex);
+                return true;
+            }
+        }
+    }
+
+    // Column writes (only the owning agent writes its slot)
+    public void setPosition(int handle, double x, double y, double z, int lane) {
+        Page p = page(handle);
+        int i = handle & PAGE_MASK;
+        p.x[i] = x;
+        p.y[i] = y;
+        p.z[i] = z;
+        p.lane[i] = lane;
+    }
+
+    public void setSpeed(int handle, double speed) {
+        page(handle).speed[handle & PAGE_MASK] = speed;
+    }
+
+    public void setAccel(int handle, double accel) {
+        page(handle).accel[handle & PAGE_MASK] = accel;
+    }
+
+    public void setProgress(int handle, double progress) {
+        page(handle).progress[handle & PAGE_MASK] = progress;
+    }
+
+    public void setRoadIndex(int handle, int roadIndex) {
+        page(handle).roadIndex[handle & PAGE_MASK] = roadIndex;
+    }
+
+    public void setThought(int handle, String thought) {
+        page(handle).thoughts[handle & PAGE_MASK] = thought;
+    }
+
+    public void setPath(int handle, List<Position> path) {
+        page(handle).paths[handle & PAGE_MASK] = path;
+    }
+
+    // Column reads
+    public String getName(int handle) {
+        return page(handle).names[handle & PAGE_MASK];
+    }
+
+    public double getX(int handle) {
+        return page(handle).x[handle & PAGE_MASK];
+    }
+
+    public double getY(int handle) {
+        return page(handle).y[handle & PAGE_MASK];
+    }
+
+    public double getZ(int handle) {
+        return page(handle).z[handle & PAGE_MASK];
+    }
+
+    public double getSpeed(int handle) {
+        return page(handle).speed[handle & PAGE_MASK];
+    }
+
+    public double getAccel(int handle) {
+        return page(handle).accel[handle & PAGE_MASK];
+    }
+
+    public double getProgress(int handle) {
+        return page(handle).progress[handle & PAGE_MASK];
+    }
+
+    public int getLane(int handle) {
+        return page(handle).lane[handle & PAGE_MASK];
+    }
+
+    public int getRoadIndex(int handle) {
+        return page(handle).roadIndex[handle & PAGE_MASK];
+    }
+
+    public String getThought(int handle) {
+        return page(handle).thoughts[handle & PAGE_MASK];
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<Position> getPath(int handle) {
+        return (List<Position>) page(handle).paths[handle & PAGE_MASK];
+    }
+
+    public Position getPosition(int handle) {
+        Page p = page(handle);
+        int i = handle & PAGE_MASK;
+        return new Position(p.x[i], p.y[i], p.z[i], p.lane[i]);
+    }
+
+    private Page page(int handle) {
+        return pages[handle >> PAGE_BITS];
+    }
+
+    /**
+     * String-keyed read-only view returning position snapshots, kept for callers
+     * that predate the handle API.
+     */
+    public Map<String, Position> positionView() {
+        return new ColumnView<Position>() {
+            @Override
+            Position read(int handle) {
+                return getPosition(handle);
+            }
+        };
+    }
+
+    public Map<String, Double> accelView() {
+        return new ColumnView<Double>() {
+            @Override
+            Double read(int handle) {
+                return getAccel(handle);
+            }
+        };
+    }
+
+    private abstract class ColumnView<V> extends AbstractMap<String, V> {
+        abstract V read(int handle);
+
+        @Override
+        public V get(Object key) {
+            Integer handle = handles.get(key);
+            return handle == null ? null : read(handle);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return handles.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return handles.size();
+        }
+
+        @Override
+        public Set<String> keySet() {
+            return Collections.unmodifiableSet(handles.keySet());
+        }
+
+        @Override
+        public Set<Map.Entry<String, V>> entrySet() {
+            return new AbstractSet<Map.Entry<String, V>>() {
+                @Override
+                public Iterator<Map.Entry<String, V>> iterator() {
+                    List<Map.Entry<String, V>> entries = new ArrayList<>();
+                    int limit = highWater;
+                    for (int h = 0; h < limit; h++) {
+                        String name = getName(h);
+                        if (name != null)
+                            entries.add(new AbstractMap.SimpleImmutableEntry<>(name, read(h)));
+                    }
+                    return entries.iterator();
+                }
+
+                @Override
+                public int size() {
+                    return handles.size();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.traffic.environment;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Virtual threads when the runtime has them (JDK 21+), looked up reflectively
+ * so the simulation still builds and runs on JDK 17 with platform threads.
+ */
+public final class VirtualThreads {
+    private static final ThreadFactory FACTORY = lookupFactory();
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isAvailable() {
+        return FACTORY != null;
+    }
+
+    /**
+     * Starts {@code task} on a new virtual thread, or on a daemon platform
+     * thread when virtual threads are not available.
+     */
+    public static Thread start(String name, Runnable task) {
+        Thread thread;
+        if (FACTORY != null) {
+            thread = FACTORY.newThread(task);
+        } else {
+            thread = new Thread(task);
+            thread.setDaemon(true);
+        }
+        thread.setName(name);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * One virtual thread per task, or a cached platform-thread pool.
+     */
+    public static ExecutorService newPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private static ThreadFactory lookupFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.traffic.environment;
+
+import com.traffic.model.LightState;
+import com.traffic.model.Position;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, epoch-stamped copy of the dynamic world taken at a tick boundary.
+ * Readers obtain the current frame with a single volatile read and can iterate
+ * it freely while agents keep writing the live store.
+ */
+public class WorldFrame {
+    private final long epoch;
+    private final int size;
+    final String[] names;
+    final double[] x;
+    final double[] y;
+    final double[] z;
+    final double[] speed;
+    final double[] accel;
+    final double[] progress;
+    final int[] lane;
+    final String[] roadIds;
+    final String[] thoughts;
+    final Object[] paths;
+    private final Map<String, Integer> indexByName;
+    private final Map<String, LightState> lightStates;
+    private final Map<String, Position> lightPositions;
+    private final List<Environment.Incident> incidents;
+
+    static WorldFrame empty() {
+        return new WorldFrame(0, 0, new HashMap<>(), new HashMap<>(), new ArrayList<>());
+    }
+
+    WorldFrame(long epoch, int capacity, Map<String, LightState> lightStates, Map<String, Position> lightPositions,
+            List<Environment.Incident> incidents) {
+        this.epoch = epoch;
+        this.names = new String[capacity];
+        this.x = new double[capacity];
+        this.y = new double[capacity];
+        this.z = new double[capacity];
+        this.speed = new double[capacity];
+        this.accel = new double[capacity];
+        this.progress = new double[capacity];
+        this.lane = new int[capacity];
+        this.roadIds = new String[capacity];
+        this.thoughts = new String[capacity];
+        this.paths = new Object[capacity];
+        this.lightStates = Map.copyOf(lightStates);
+        this.lightPositions = Map.copyOf(lightPositions);
+        this.incidents = List.copyOf(incidents);
+        this.indexByName = new HashMap<>();
+        this.size = 0;
+    }
+
+    private WorldFrame(WorldFrame filled, int size) {
+        this.epoch = filled.epoch;
+        this.names = filled.names;
+        this.x = filled.x;
+        this.y = filled.y;
+        this.z = filled.z;
+        this.speed = filled.speed;
+        this.accel = filled.accel;
+        this.progress = filled.progress;
+        this.lane = filled.lane;
+        this.roadIds = filled.roadIds;
+        this.thoughts = filled.thoughts;
+        this.paths = filled.paths;
+        this.lightStates = filled.lightStates;
+        this.lightPositions = filled.lightPositions;
+        this.incidents = filled.incidents;
+        this.size = size;
+        Map<String, Integer> index = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++)
+            index.put(names[i], i);
+        this.indexByName = index;
+    }
+
+    /**
+     * Seals a frame whose first {@code size} rows have been filled.
+     */
+    WorldFrame seal(int size) {
+        return new WorldFrame(this, size);
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Row of the named vehicle in this frame, or -1 if it was not present.
+     */
+    public int indexOf(String name) {
+        Integer index = indexByName.get(name);
+        return index == null ? -1 : index;
+    }
+
+    public String getName(int i) {
+        return names[i];
+    }
+
+    public double getX(int i) {
+        return x[i];
+    }
+
+    public double getY(int i) {
+        return y[i];
+    }
+
+    public double getZ(int i) {
+        return z[i];
+    }
+
+    public double getSpeed(int i) {
+        return speed[i];
+    }
+
+    public double getAccel(int i) {
+        return accel[i];
+    }
+
+    public double getProgress(int i) {
+        return progress[i];
+    }
+
+    public int getLane(int i) {
+        return lane[i];
+    }
+
+    public String getRoadId(int i) {
+        return roadIds[i];
+    }
+
+    public String getThought(int i) {
+        return thoughts[i] == null ? "Cruising" : thoughts[i];
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<Position> getPath(int i) {
+        return paths[i] == null ? List.of() : (List<Position>) paths[i];
+    }
+
+    public Position getPosition(int i) {
+        return new Position(x[i], y[i], z[i], lane[i]);
+    }
+
+    public Map<String, LightState> getLightStates() {
+        return lightStates;
+    }
+
+    public Map<String, Position> getLightPositions() {
+        return lightPositions;
+    }
+
+    public List<Environment.Incident> getIncidents() {
+        return incidents;
+    }
+}
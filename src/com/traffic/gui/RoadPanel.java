@@ -4,6 +4,7 @@ import javax.swing.*;
 import java.awt.*;
 import java.util.Map;
 import com.traffic.environment.Environment;
+import com.traffic.environment.WorldFrame;
 import com.traffic.model.*;
 
 import java.awt.event.*;
@@ -83,6 +84,7 @@ public class RoadPanel extends JPanel {
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
+        WorldFrame frame = env.getFrame();
         Graphics2D g2 = (Graphics2D) g;
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
@@ -193,9 +195,9 @@ public class RoadPanel extends JPanel {
         }
 
         // 3. Draw Traffic Lights
-        for (Map.Entry<String, Position> entry : env.getLightPositions().entrySet()) {
+        for (Map.Entry<String, Position> entry : frame.getLightPositions().entrySet()) {
             Position pos = entry.getValue();
-            LightState state = env.getLightStates().get(entry.getKey());
+            LightState state = frame.getLightStates().get(entry.getKey());
             g2.setColor(Color.BLACK);
             g2.fillRect((int) pos.getX() - 10, (int) pos.getY() - 10, 20, 20);
             if (state == LightState.RED)
@@ -208,22 +210,23 @@ public class RoadPanel extends JPanel {
         }
 
         // 4. Draw Incidents
-        for (Environment.Incident inc : env.getActiveIncidents()) {
+        for (Environment.Incident inc : frame.getIncidents()) {
             g2.setColor(new Color(255, 200, 0, 180));
             g2.fillOval((int) inc.position.getX() - 15, (int) inc.position.getY() - 15, 30, 30);
         }
 
         // 5. Draw Vehicles
         long now = System.currentTimeMillis();
-        for (Map.Entry<String, Position> entry : env.getVehiclePositions().entrySet()) {
-            Position pos = entry.getValue();
-            String name = entry.getKey();
+        for (int i = 0; i < frame.size(); i++) {
+            double x = frame.getX(i);
+            double y = frame.getY(i);
+            String name = frame.getName(i);
 
             AffineTransform vehicleTransform = g2.getTransform();
-            g2.translate(pos.getX(), pos.getY());
+            g2.translate(x, y);
 
             double angle = 0;
-            String roadId = env.getVehicleRoadId(name);
+            String roadId = frame.getRoadId(i);
             if (roadId != null) {
                 RoadSegment r = env.getRoads().get(roadId);
                 if (r != null)
@@ -254,7 +257,7 @@ public class RoadPanel extends JPanel {
             g2.setColor(new Color(200, 230, 255, 180));
             g2.fillRoundRect(2, -4, 5, 8, 1, 1);
 
-            double accel = env.getVehicleAccels().getOrDefault(name, 0.0);
+            double accel = frame.getAccel(i);
             if (accel < -0.01) {
                 g2.setColor(new Color(255, 0, 0, 200));
                 g2.fillOval(-11, -4, 3, 3);
@@ -264,7 +267,7 @@ public class RoadPanel extends JPanel {
             g2.setTransform(vehicleTransform);
             if (showDebug) {
                 g2.setColor(Color.WHITE);
-                g2.drawString(name, (int) pos.getX() - 15, (int) pos.getY() - 20);
+                g2.drawString(name, (int) x - 15, (int) y - 20);
             }
         }
 
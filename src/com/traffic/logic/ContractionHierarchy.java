@@ -0,0 +1,400 @@
+package com.traffic.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Customizable contraction hierarchy over a {@link RoadGraph}.
+ *
+ * Preprocessing is metric-independent: intersections are eliminated in
+ * minimum-degree order and every fill-in edge becomes a shortcut, giving an
+ * upward graph and an elimination tree. Customization then assigns road weights
+ * and settles all shortcuts bottom-up via lower triangles, so weights can change
+ * (e.g. with congestion) without rebuilding. Queries scan the elimination-tree
+ * ancestors of start and end, meet in the middle and unpack shortcuts back into
+ * road IDs. Distances from every intersection to one target take an upward
+ * search from the target plus a single downward sweep (PHAST).
+ */
+public class ContractionHierarchy {
+    private static final double INF = Double.MAX_VALUE;
+
+    private final RoadGraph graph;
+    private final int n;
+    private final int[] rank;
+    private final int[] byRank;
+    private final int[] etreeParent;
+    // Upward CSR: edges of x are [upStart[x], upStart[x+1]), targets sorted by node id
+    private final int[] upStart;
+    private final int[] upSource;
+    private final int[] upTarget;
+    // For every road: the CCH edge it maps to and whether it runs upward (low rank -> high rank)
+    private final int[] roadEdge;
+    private final boolean[] roadUpward;
+
+    private volatile Metric metric;
+    private final ThreadLocal<Scratch> scratch;
+
+    /**
+     * Weights of every CCH edge in both directions after customization. "Via" is
+     * the middle intersection of a shortcut, or -1 when the cost comes from a road.
+     */
+    private static class Metric {
+        final long version;
+        final double[] roadWeights;
+        final double[] up;
+        final double[] down;
+        final int[] upVia;
+        final int[] downVia;
+        final int[] upRoad;
+        final int[] downRoad;
+
+        Metric(long version, double[] roadWeights, int m) {
+            this.version = version;
+            this.roadWeights = roadWeights;
+            up = new double[m];
+            down = new double[m];
+            upVia = new int[m];
+            downVia = new int[m];
+            upRoad = new int[m];
+            downRoad = new int[m];
+            Arrays.fill(up, INF);
+            Arrays.fill(down, INF);
+            Arrays.fill(upVia, -1);
+            Arrays.fill(downVia, -1);
+            Arrays.fill(upRoad, -1);
+            Arrays.fill(downRoad, -1);
+        }
+    }
+
+    private static class Scratch {
+        final double[] forward;
+        final double[] backward;
+        final int[] forwardEdge;
+        final int[] backwardEdge;
+        final int[] stack;
+
+        Scratch(int n, int m) {
+            forward = new double[n];
+            backward = new double[n];
+            forwardEdge = new int[n];
+            backwardEdge = new int[n];
+            stack = new int[Math.max(16, 2 * m + 2)];
+            Arrays.fill(forward, INF);
+            Arrays.fill(backward, INF);
+        }
+    }
+
+    public static ContractionHierarchy build(RoadGraph graph) {
+        return new ContractionHierarchy(graph);
+    }
+
+    private ContractionHierarchy(RoadGraph graph) {
+        this.graph = graph;
+        this.n = graph.getIntersectionCount();
+
+        // 1. Undirected neighbourhoods
+        List<Set<Integer>> adjacent = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+            adjacent.add(new HashSet<>());
+        for (int r = 0; r < graph.getRoadCount(); r++) {
+            int a = graph.getUpstream(r);
+            int b = graph.getDownstream(r);
+            if (a < 0 || b < 0 || a == b)
+                continue;
+            adjacent.get(a).add(b);
+            adjacent.get(b).add(a);
+        }
+
+        // 2. Minimum-degree elimination; the remaining neighbours of an eliminated node become a clique
+        rank = new int[n];
+        byRank = new int[n];
+        List<int[]> upward = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+            upward.add(null);
+        boolean[] eliminated = new boolean[n];
+        PriorityQueue<long[]> queue = new PriorityQueue<>((p, q) -> p[0] != q[0] ? Long.compare(p[0], q[0])
+                : Long.compare(p[1], q[1]));
+        for (int i = 0; i < n; i++)
+            queue.add(new long[] { adjacent.get(i).size(), i });
+        int next = 0;
+        while (!queue.isEmpty()) {
+            long[] top = queue.poll();
+            int x = (int) top[1];
+            if (eliminated[x] || top[0] != adjacent.get(x).size())
+                continue; // stale entry
+            eliminated[x] = true;
+            byRank[next] = x;
+            rank[x] = next++;
+            int[] neighbours = adjacent.get(x).stream().mapToInt(Integer::intValue).sorted().toArray();
+            upward.set(x, neighbours);
+            for (int a : neighbours) {
+                Set<Integer> set = adjacent.get(a);
+                set.remove(x);
+                for (int b : neighbours) {
+                    if (b != a)
+                        set.add(b);
+                }
+                queue.add(new long[] { set.size(), a });
+            }
+        }
+
+        // 3. Upward CSR and elimination tree
+        upStart = new int[n + 1];
+        for (int x = 0; x < n; x++)
+            upStart[x + 1] = upStart[x] + upward.get(x).length;
+        int m = upStart[n];
+        upSource = new int[m];
+        upTarget = new int[m];
+        etreeParent = new int[n];
+        for (int x = 0; x < n; x++) {
+            int[] targets = upward.get(x);
+            int parent = -1;
+            for (int k = 0; k < targets.length; k++) {
+                upSource[upStart[x] + k] = x;
+                upTarget[upStart[x] + k] = targets[k];
+                if (parent < 0 || rank[targets[k]] < rank[parent])
+                    parent = targets[k];
+            }
+            etreeParent[x] = parent;
+        }
+
+        roadEdge = new int[graph.getRoadCount()];
+        roadUpward = new boolean[graph.getRoadCount()];
+        for (int r = 0; r < graph.getRoadCount(); r++) {
+            int a = graph.getUpstream(r);
+            int b = graph.getDownstream(r);
+            if (a < 0 || b < 0 || a == b) {
+                roadEdge[r] = -1;
+                continue;
+            }
+            roadUpward[r] = rank[a] < rank[b];
+            roadEdge[r] = roadUpward[r] ? edgeBetween(a, b) : edgeBetween(b, a);
+        }
+
+        scratch = ThreadLocal.withInitial(() -> new Scratch(n, m));
+    }
+
+    public RoadGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Version passed to the last {@link #customize}, or -1 if never customized.
+     */
+    public long getMetricVersion() {
+        Metric current = metric;
+        return current == null ? -1 : current.version;
+    }
+
+    /**
+     * Applies new road weights (indexed like the graph's roads; infinite or NaN
+     * closes a road). Queries running concurrently keep using the previous metric.
+     */
+    public synchronized void customize(double[] roadWeights, long version) {
+        Metric next = new Metric(version, roadWeights, upTarget.length);
+        for (int r = 0; r < roadEdge.length; r++) {
+            int e = roadEdge[r];
+            double w = roadWeights[r];
+            if (e < 0 || !(w < INF))
+                continue;
+            if (roadUpward[r]) {
+                if (w < next.up[e]) {
+                    next.up[e] = w;
+                    next.upRoad[e] = r;
+                }
+            } else if (w < next.down[e]) {
+                next.down[e] = w;
+                next.downRoad[e] = r;
+            }
+        }
+
+        // Lower triangles, processed from the lowest rank up so edges below x are final
+        for (int x : byRank) {
+            for (int i = upStart[x]; i < upStart[x + 1]; i++) {
+                for (int j = i + 1; j < upStart[x + 1]; j++) {
+                    int lowEdge = rank[upTarget[i]] < rank[upTarget[j]] ? i : j;
+                    int highEdge = lowEdge == i ? j : i;
+                    int e = edgeBetween(upTarget[lowEdge], upTarget[highEdge]);
+                    // low -> x -> high, and high -> x -> low
+                    double viaUp = add(next.down[lowEdge], next.up[highEdge]);
+                    if (viaUp < next.up[e]) {
+                        next.up[e] = viaUp;
+                        next.upVia[e] = x;
+                    }
+                    double viaDown = add(next.down[highEdge], next.up[lowEdge]);
+                    if (viaDown < next.down[e]) {
+                        next.down[e] = viaDown;
+                        next.downVia[e] = x;
+                    }
+                }
+            }
+        }
+        metric = next;
+    }
+
+    /**
+     * Cheapest sequence of road IDs from one intersection to another under the
+     * current metric; empty if unreachable, unknown or not yet customized.
+     */
+    public List<String> findPath(String startInterId, String endInterId) {
+        List<String> path = new ArrayList<>();
+        Metric w = metric;
+        if (w == null || startInterId == null || endInterId == null || startInterId.equals(endInterId))
+            return path;
+        int s = graph.getIntersectionIndex(startInterId);
+        int t = graph.getIntersectionIndex(endInterId);
+        if (s < 0 || t < 0)
+            return path;
+
+        Scratch sc = scratch.get();
+        double[] df = sc.forward;
+        double[] db = sc.backward;
+        df[s] = 0;
+        db[t] = 0;
+        // Upward searches over elimination-tree ancestors; all upward targets are ancestors, in rank order
+        for (int x = s; x >= 0; x = etreeParent[x]) {
+            if (df[x] == INF)
+                continue;
+            for (int e = upStart[x]; e < upStart[x + 1]; e++) {
+                double d = add(df[x], w.up[e]);
+                if (d < df[upTarget[e]]) {
+                    df[upTarget[e]] = d;
+                    sc.forwardEdge[upTarget[e]] = e;
+                }
+            }
+        }
+        double best = INF;
+        int meet = -1;
+        for (int x = t; x >= 0; x = etreeParent[x]) {
+            if (db[x] != INF) {
+                for (int e = upStart[x]; e < upStart[x + 1]; e++) {
+                    double d = add(db[x], w.down[e]);
+                    if (d < db[upTarget[e]]) {
+                        db[upTarget[e]] = d;
+                        sc.backwardEdge[upTarget[e]] = e;
+                    }
+                }
+            }
+            double total = add(df[x], db[x]);
+            if (total < best) {
+                best = total;
+                meet = x;
+            }
+        }
+
+        if (meet >= 0) {
+            // Forward half: edges from s up to the meeting point, unpacked in travel order
+            int hops = 0;
+            for (int x = meet; x != s; x = upSource[sc.forwardEdge[x]])
+                hops++;
+            int[] chain = new int[hops];
+            int k = hops;
+            for (int x = meet; x != s; x = upSource[sc.forwardEdge[x]])
+                chain[--k] = sc.forwardEdge[x] * 2;
+            for (int code : chain)
+                unpack(w, code, sc.stack, path);
+            // Backward half: from the meeting point down to t
+            for (int x = meet; x != t; x = upSource[sc.backwardEdge[x]])
+                unpack(w, sc.backwardEdge[x] * 2 + 1, sc.stack, path);
+        }
+
+        for (int x = s; x >= 0; x = etreeParent[x])
+            df[x] = INF;
+        for (int x = t; x >= 0; x = etreeParent[x])
+            db[x] = INF;
+        return path;
+    }
+
+    /**
+     * Fills {@code dist} with the cost from every intersection to {@code target}
+     * under the current metric (infinite if unreachable). Returns the road weights
+     * that metric was customized with, or null if it never was.
+     */
+    public double[] distancesTo(int target, double[] dist) {
+        Metric w = metric;
+        if (w == null)
+            return null;
+        Arrays.fill(dist, INF);
+        dist[target] = 0;
+        // 1. Upward search from the target over its ancestors, against the downward weights
+        for (int x = target; x >= 0; x = etreeParent[x]) {
+            if (dist[x] == INF)
+                continue;
+            for (int e = upStart[x]; e < upStart[x + 1]; e++) {
+                double d = add(dist[x], w.down[e]);
+                if (d < dist[upTarget[e]])
+                    dist[upTarget[e]] = d;
+            }
+        }
+        // 2. Downward sweep: every upward neighbour has a higher rank, so its distance is final
+        for (int i = n - 1; i >= 0; i--) {
+            int x = byRank[i];
+            for (int e = upStart[x]; e < upStart[x + 1]; e++) {
+                double d = add(w.up[e], dist[upTarget[e]]);
+                if (d < dist[x])
+                    dist[x] = d;
+            }
+        }
+        for (int x = 0; x < n; x++) {
+            if (dist[x] == INF)
+                dist[x] = Double.POSITIVE_INFINITY;
+        }
+        return w.roadWeights;
+    }
+
+    /**
+     * Expands edge {@code code / 2} in direction {@code code % 2} (0 = up, 1 =
+     * down) into roads, appending them in travel order.
+     */
+    private void unpack(Metric w, int code, int[] stack, List<String> out) {
+        int top = 0;
+        stack[top++] = code;
+        while (top > 0) {
+            int c = stack[--top];
+            int e = c >> 1;
+            boolean down = (c & 1) != 0;
+            int via = down ? w.downVia[e] : w.upVia[e];
+            if (via < 0) {
+                int road = down ? w.downRoad[e] : w.upRoad[e];
+                if (road >= 0)
+                    out.add(graph.getRoadId(road));
+                continue;
+            }
+            int low = upSource[e];
+            int high = upTarget[e];
+            // up: low -> via -> high, down: high -> via -> low; push the second hop first
+            int viaLow = edgeBetween(via, low);
+            int viaHigh = edgeBetween(via, high);
+            if (down) {
+                stack[top++] = viaLow * 2;
+                stack[top++] = viaHigh * 2 + 1;
+            } else {
+                stack[top++] = viaHigh * 2;
+                stack[top++] = viaLow * 2 + 1;
+            }
+        }
+    }
+
+    private int edgeBetween(int low, int high) {
+        int lo = upStart[low];
+        int hi = upStart[low + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (upTarget[mid] < high)
+                lo = mid + 1;
+            else if (upTarget[mid] > high)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    private static double add(double a, double b) {
+        return a == INF || b == INF ? INF : a + b;
+    }
+}
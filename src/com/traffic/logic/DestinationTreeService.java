@@ -0,0 +1,272 @@
+package com.traffic.logic;
+
+import com.traffic.environment.Environment;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One reverse shortest-path tree per active destination, shared by every
+ * vehicle heading there: each intersection knows the road to take next, so a
+ * vehicle needs no route of its own. Trees use the historical weights of the
+ * edge-weight snapshot. They are built from the contraction hierarchy and
+ * repaired in place when the historical epoch changes, touching only the
+ * intersections whose distance actually moved.
+ */
+public class DestinationTreeService {
+    private final int capacity;
+    private final Map<String, Tree> trees;
+    private final ThreadLocal<IndexedMinHeap> heaps = new ThreadLocal<>();
+    private long builds;
+    private long repairs;
+
+    static class Tree {
+        final RoadGraph graph;
+        final int destination;
+        final double[] dist;
+        final int[] nextRoad;
+        double[] weights;
+        long epoch;
+
+        Tree(RoadGraph graph, int destination) {
+            this.graph = graph;
+            this.destination = destination;
+            dist = new double[graph.getIntersectionCount()];
+            nextRoad = new int[graph.getIntersectionCount()];
+        }
+    }
+
+    public DestinationTreeService(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.trees = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Tree> eldest) {
+                return size() > DestinationTreeService.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Road to take from the intersection towards the destination, or null if the
+     * intersection is the destination or cannot reach it.
+     */
+    public String getNextRoad(String fromInterId, String destinationInterId) {
+        Tree tree = getTree(destinationInterId);
+        if (tree == null)
+            return null;
+        int from = tree.graph.getIntersectionIndex(fromInterId);
+        if (from < 0)
+            return null;
+        synchronized (tree) {
+            int road = tree.nextRoad[from];
+            return road < 0 ? null : tree.graph.getRoadId(road);
+        }
+    }
+
+    /**
+     * Full remaining route, read off the tree; empty if unreachable.
+     */
+    public List<String> getRoute(String fromInterId, String destinationInterId) {
+        List<String> route = new ArrayList<>();
+        Tree tree = getTree(destinationInterId);
+        if (tree == null)
+            return route;
+        int x = tree.graph.getIntersectionIndex(fromInterId);
+        synchronized (tree) {
+            for (int steps = 0; x >= 0 && x != tree.destination && steps < tree.dist.length; steps++) {
+                int road = tree.nextRoad[x];
+                if (road < 0)
+                    break;
+                route.add(tree.graph.getRoadId(road));
+                x = tree.graph.getDownstream(road);
+            }
+        }
+        return route;
+    }
+
+    public synchronized int getTreeCount() {
+        return trees.size();
+    }
+
+    public synchronized long getBuildCount() {
+        return builds;
+    }
+
+    public synchronized long getRepairCount() {
+        return repairs;
+    }
+
+    private Tree getTree(String destinationInterId) {
+        if (destinationInterId == null)
+            return null;
+        EdgeWeights weights = Environment.getInstance().getEdgeWeights();
+        RoadGraph graph = weights.getGraph();
+        int destination = graph.getIntersectionIndex(destinationInterId);
+        if (destination < 0)
+            return null;
+        Tree tree;
+        synchronized (this) {
+            tree = trees.get(destinationInterId);
+            if (tree == null || tree.graph != graph) {
+                tree = new Tree(graph, destination);
+                trees.put(destinationInterId, tree);
+            }
+        }
+        synchronized (tree) {
+            // The stored weights are the ones the tree was settled on: the baseline for the next repair
+            if (tree.weights == null) {
+                if (!build(tree, Environment.getInstance().getContractionHierarchy()))
+                    build(tree, weights.getHistorical());
+                tree.epoch = weights.getHistoricalEpoch();
+                synchronized (this) {
+                    builds++;
+                }
+            } else if (tree.epoch != weights.getHistoricalEpoch()) {
+                repair(tree, weights.getHistorical());
+                tree.epoch = weights.getHistoricalEpoch();
+                synchronized (this) {
+                    repairs++;
+                }
+            }
+        }
+        return tree;
+    }
+
+    /**
+     * Backward Dijkstra from the destination.
+     */
+    void build(Tree tree, double[] w) {
+        Arrays.fill(tree.dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(tree.nextRoad, -1);
+        IndexedMinHeap heap = heap(tree.graph);
+        tree.dist[tree.destination] = 0.0;
+        heap.push(tree.destination, 0.0);
+        settle(tree, w, heap);
+        tree.weights = w;
+    }
+
+    /**
+     * Distances from the contraction hierarchy (one upward search and a sweep);
+     * false if it is for another graph or not customized. The hierarchy may have
+     * been customized from an earlier snapshot of the same epoch, so the tree
+     * keeps the weights it was actually built on.
+     */
+    boolean build(Tree tree, ContractionHierarchy ch) {
+        RoadGraph graph = tree.graph;
+        double[] w = ch.getGraph() == graph ? ch.distancesTo(tree.destination, tree.dist) : null;
+        if (w == null)
+            return false;
+        tree.weights = w;
+        // Each intersection leaves through the road that starts its cheapest path
+        for (int x = 0; x < tree.nextRoad.length; x++) {
+            tree.nextRoad[x] = -1;
+            if (x == tree.destination)
+                continue;
+            double best = Double.POSITIVE_INFINITY;
+            for (int k = graph.outStart(x); k < graph.outEnd(x); k++) {
+                int r = graph.outRoad(k);
+                int z = graph.getDownstream(r);
+                if (z >= 0 && w[r] + tree.dist[z] < best) {
+                    best = w[r] + tree.dist[z];
+                    tree.nextRoad[x] = r;
+                }
+            }
+        }
+        return true;
+    }
+
+    void repair(Tree tree, double[] w) {
+        RoadGraph graph = tree.graph;
+        double[] old = tree.weights;
+        int n = graph.getIntersectionCount();
+        IndexedMinHeap heap = heap(graph);
+
+        // 1. Tree roads that got more expensive: everything routed through them loses its distance
+        boolean[] affected = new boolean[n];
+        int[] queue = new int[n];
+        int count = 0;
+        for (int r = 0; r < w.length; r++) {
+            int y = graph.getUpstream(r);
+            if (w[r] > old[r] && y >= 0 && tree.nextRoad[y] == r && !affected[y]) {
+                affected[y] = true;
+                queue[count++] = y;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            int x = queue[i];
+            for (int k = graph.inStart(x); k < graph.inEnd(x); k++) {
+                int r = graph.inRoad(k);
+                int y = graph.getUpstream(r);
+                if (y >= 0 && tree.nextRoad[y] == r && !affected[y]) {
+                    affected[y] = true;
+                    queue[count++] = y;
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            tree.dist[queue[i]] = Double.POSITIVE_INFINITY;
+            tree.nextRoad[queue[i]] = -1;
+        }
+        // Re-attach them through their best road into the unaffected part
+        for (int i = 0; i < count; i++) {
+            int x = queue[i];
+            for (int k = graph.outStart(x); k < graph.outEnd(x); k++) {
+                int r = graph.outRoad(k);
+                int z = graph.getDownstream(r);
+                if (z >= 0 && !affected[z] && tree.dist[z] + w[r] < tree.dist[x]) {
+                    tree.dist[x] = tree.dist[z] + w[r];
+                    tree.nextRoad[x] = r;
+                }
+            }
+            if (tree.nextRoad[x] >= 0)
+                heap.push(x, tree.dist[x]);
+        }
+
+        // 2. Roads that got cheaper can shorten paths through them
+        for (int r = 0; r < w.length; r++) {
+            int y = graph.getUpstream(r);
+            int z = graph.getDownstream(r);
+            if (w[r] < old[r] && y >= 0 && z >= 0 && tree.dist[z] + w[r] < tree.dist[y]) {
+                tree.dist[y] = tree.dist[z] + w[r];
+                tree.nextRoad[y] = r;
+                heap.push(y, tree.dist[y]);
+            }
+        }
+        settle(tree, w, heap);
+        tree.weights = w;
+    }
+
+    /**
+     * Dijkstra backwards along incoming roads from the seeded intersections.
+     */
+    private void settle(Tree tree, double[] w, IndexedMinHeap heap) {
+        RoadGraph graph = tree.graph;
+        while (!heap.isEmpty()) {
+            int x = heap.pop();
+            for (int k = graph.inStart(x); k < graph.inEnd(x); k++) {
+                int r = graph.inRoad(k);
+                int y = graph.getUpstream(r);
+                if (y < 0)
+                    continue;
+                double d = tree.dist[x] + w[r];
+                if (d < tree.dist[y]) {
+                    tree.dist[y] = d;
+                    tree.nextRoad[y] = r;
+                    heap.push(y, d);
+                }
+            }
+        }
+    }
+
+    private IndexedMinHeap heap(RoadGraph graph) {
+        IndexedMinHeap heap = heaps.get();
+        if (heap == null || heap.capacity() < graph.getIntersectionCount()) {
+            heap = new IndexedMinHeap(graph.getIntersectionCount());
+            heaps.set(heap);
+        }
+        heap.clear();
+        return heap;
+    }
+}
@@ -0,0 +1,84 @@
+package com.traffic.logic;
+
+import com.traffic.environment.Environment;
+import com.traffic.model.RoadSegment;
+
+/**
+ * Routing cost of every road, captured once per tick so that all route queries
+ * in a tick see the same, consistent weights. Indexed like the {@link RoadGraph}
+ * roads. {@code live} uses current occupancy and incidents (for A*),
+ * {@code historical} the smoothed congestion (for the contraction hierarchy).
+ */
+public class EdgeWeights {
+    private static final double INCIDENT_PENALTY = 10.0;
+
+    private final RoadGraph graph;
+    private final long epoch;
+    private final long historicalEpoch;
+    private final double[] live;
+    private final double[] historical;
+
+    private EdgeWeights(RoadGraph graph, long epoch, long historicalEpoch, double[] live, double[] historical) {
+        this.graph = graph;
+        this.epoch = epoch;
+        this.historicalEpoch = historicalEpoch;
+        this.live = live;
+        this.historical = historical;
+    }
+
+    /**
+     * Weight = (length + yield friction) * (1 + 0.5 per vehicle); live weights of
+     * roads with an active incident are multiplied by a penalty. Roads that are
+     * not on the map get an infinite weight.
+     */
+    public static EdgeWeights compute(RoadGraph graph, Environment env) {
+        long epoch = env.getCongestionEpoch();
+        long historicalEpoch = env.getHistoricalEpoch();
+        int count = graph.getRoadCount();
+        double[] live = new double[count];
+        double[] historical = new double[count];
+        for (int r = 0; r < count; r++) {
+            RoadSegment road = graph.getRoad(r);
+            if (road == null) {
+                live[r] = Double.POSITIVE_INFINITY;
+                historical[r] = Double.POSITIVE_INFINITY;
+                continue;
+            }
+            double base = graph.getLength(r) + (road.isYieldTarget() ? 50.0 : 0.0); // Entering roundabout adds "cost"
+            live[r] = base * (1.0 + env.countVehiclesOnRoad(road.getId()) * 0.5);
+            if (!env.getIncidentsOnRoad(road.getId(), 0, road.getLength()).isEmpty())
+                live[r] *= INCIDENT_PENALTY;
+            historical[r] = base * (1.0 + env.getHistoricalCongestion(road.getId()) * 0.5);
+        }
+        return new EdgeWeights(graph, epoch, historicalEpoch, live, historical);
+    }
+
+    public RoadGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Congestion epoch the weights belong to.
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Historical epoch the historical weights belong to.
+     */
+    public long getHistoricalEpoch() {
+        return historicalEpoch;
+    }
+
+    public double getLive(int road) {
+        return live[road];
+    }
+
+    /**
+     * Shared array; callers must not modify it.
+     */
+    public double[] getHistorical() {
+        return historical;
+    }
+}
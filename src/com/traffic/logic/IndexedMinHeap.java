@@ -0,0 +1,93 @@
+package com.traffic.logic;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of node indices [0, n) keyed by doubles, with in-place
+ * decrease-key. Backed by primitive arrays so searches allocate nothing.
+ */
+class IndexedMinHeap {
+    private final int[] heap;
+    private final int[] heapIndex;
+    private final double[] key;
+    private int size;
+
+    IndexedMinHeap(int n) {
+        heap = new int[n];
+        heapIndex = new int[n];
+        key = new double[n];
+        Arrays.fill(heapIndex, -1);
+    }
+
+    int capacity() {
+        return heap.length;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++)
+            heapIndex[heap[i]] = -1;
+        size = 0;
+    }
+
+    /** Inserts v or changes its key (callers only ever lower it). */
+    void push(int v, double k) {
+        int i = heapIndex[v];
+        if (i < 0) {
+            i = size++;
+            heap[i] = v;
+            heapIndex[v] = i;
+        }
+        key[v] = k;
+        siftUp(i);
+    }
+
+    int pop() {
+        int top = heap[0];
+        heapIndex[top] = -1;
+        int last = heap[--size];
+        if (size > 0) {
+            heap[0] = last;
+            heapIndex[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int i) {
+        int v = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            int p = heap[parent];
+            if (key[p] <= key[v])
+                break;
+            heap[i] = p;
+            heapIndex[p] = i;
+            i = parent;
+        }
+        heap[i] = v;
+        heapIndex[v] = i;
+    }
+
+    private void siftDown(int i) {
+        int v = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && key[heap[child + 1]] < key[heap[child]])
+                child++;
+            int c = heap[child];
+            if (key[v] <= key[c])
+                break;
+            heap[i] = c;
+            heapIndex[c] = i;
+            i = child;
+        }
+        heap[i] = v;
+        heapIndex[v] = i;
+    }
+}
@@ -1,5 +1,6 @@
 package com.traffic.logic;
 
+import com.traffic.environment.Environment;
 import com.traffic.model.Intersection;
 import com.traffic.model.RoadSegment;
 import java.util.*;
@@ -7,84 +8,150 @@ import java.util.*;
 public class Pathfinder {
     public static List<String> findPath(Map<String, Intersection> intersections, Map<String, RoadSegment> roads,
             String startInterId, String endInterId) {
-        if (startInterId == null || endInterId == null || startInterId.equals(endInterId)) {
-            return new ArrayList<>();
-        }
+        Environment env = Environment.getInstance();
+        RoadGraph graph = (intersections == env.getIntersections() && roads == env.getRoads())
+                ? env.getRoadGraph()
+                : RoadGraph.build(intersections, roads, null);
+        return findPath(graph, startInterId, endInterId);
+    }
 
-        // Dijkstra's Algorithm for weighted shortest path
-        Map<String, Double> dist = new HashMap<>();
-        Map<String, String> parentRoad = new HashMap<>();
-        Map<String, String> parentInter = new HashMap<>();
-        PriorityQueue<Node> pq = new PriorityQueue<>(Comparator.comparingDouble(n -> n.distance));
+    /**
+     * Route on the live network under current occupancy and incidents (historical
+     * routing is covered by the destination trees). Routes are shared through the
+     * route cache until the congestion epoch changes.
+     */
+    public static List<String> findRoute(String startInterId, String endInterId) {
+        Environment env = Environment.getInstance();
+        EdgeWeights weights = env.getEdgeWeights();
+        RouteCache cache = env.getRouteCache();
+        List<String> route = cache.get(startInterId, endInterId, weights.getEpoch());
+        if (route != null)
+            return route;
+        route = findPath(weights.getGraph(), weights, startInterId, endInterId);
+        cache.put(startInterId, endInterId, weights.getEpoch(), route);
+        return route;
+    }
+
+    /**
+     * A* over the compiled graph. The heuristic is the straight-line distance to
+     * the goal scaled by the graph's detour factor; every weight is at least the
+     * road length, so it never overestimates. Weights come from the environment's
+     * per-tick snapshot when routing on the live graph.
+     */
+    public static List<String> findPath(RoadGraph graph, String startInterId, String endInterId) {
+        Environment env = Environment.getInstance();
+        EdgeWeights weights = env.getEdgeWeights();
+        if (weights.getGraph() != graph)
+            weights = EdgeWeights.compute(graph, env);
+        return findPath(graph, weights, startInterId, endInterId);
+    }
 
-        for (String id : intersections.keySet()) {
-            dist.put(id, Double.MAX_VALUE);
+    private static List<String> findPath(RoadGraph graph, EdgeWeights weights, String startInterId,
+            String endInterId) {
+        if (startInterId == null || endInterId == null || startInterId.equals(endInterId)) {
+            return new ArrayList<>();
         }
+        int start = graph.getIntersectionIndex(startInterId);
+        int end = graph.getIntersectionIndex(endInterId);
+        if (start < 0 || end < 0)
+            return new ArrayList<>();
 
-        dist.put(startInterId, 0.0);
-        pq.add(new Node(startInterId, 0.0));
+        Scratch sc = Scratch.get(graph.getIntersectionCount());
+        double factor = graph.getDetourFactor();
 
-        while (!pq.isEmpty()) {
-            Node current = pq.poll();
-            String u = current.id;
+        sc.reach(start, 0.0, -1);
+        sc.push(start, factor * graph.distance(start, end));
 
-            if (u.equals(endInterId))
+        while (!sc.heap.isEmpty()) {
+            int u = sc.pop();
+            if (u == end)
                 break;
-            if (current.distance > dist.get(u))
-                continue;
 
-            Intersection inter = intersections.get(u);
-            if (inter == null)
-                continue;
-
-            for (RoadSegment road : inter.getOutgoingRoads()) {
-                String v = findNextIntersection(intersections, road);
-                if (v == null)
+            for (int k = graph.outStart(u); k < graph.outEnd(u); k++) {
+                int r = graph.outRoad(k);
+                int v = graph.getDownstream(r);
+                if (v < 0 || sc.isClosed(v))
                     continue;
 
-                // Weight = physical length * (1 + congestion factor) + yield friction
-                int vehicleCount = com.traffic.environment.Environment.getInstance().countVehiclesOnRoad(road.getId());
-                double congestionFactor = vehicleCount * 0.5; // Each car adds 50% "virtual length"
-                double yieldFriction = road.isYieldTarget() ? 50.0 : 0.0; // Entering roundabout adds "cost"
-                double weight = (road.getLength() + yieldFriction) * (1.0 + congestionFactor);
-
-                double newDist = dist.get(u) + weight;
-                if (newDist < dist.get(v)) {
-                    dist.put(v, newDist);
-                    parentInter.put(v, u);
-                    parentRoad.put(v, road.getId());
-                    pq.add(new Node(v, newDist));
+                double newDist = sc.dist[u] + weights.getLive(r);
+                if (!sc.isReached(v) || newDist < sc.dist[v]) {
+                    sc.reach(v, newDist, r);
+                    sc.push(v, newDist + factor * graph.distance(v, end));
                 }
             }
         }
 
-        // Reconstruct path of road IDs
-        List<String> path = new ArrayList<>();
-        String curr = endInterId;
-        while (parentRoad.containsKey(curr)) {
-            path.add(0, parentRoad.get(curr));
-            curr = parentInter.get(curr);
+        // Reconstruct path of road IDs, filled back to front
+        if (!sc.isReached(end))
+            return new ArrayList<>();
+        int hops = 0;
+        for (int curr = end; sc.parentRoad[curr] >= 0; curr = graph.getUpstream(sc.parentRoad[curr]))
+            hops++;
+        String[] path = new String[hops];
+        for (int curr = end; sc.parentRoad[curr] >= 0; curr = graph.getUpstream(sc.parentRoad[curr]))
+            path[--hops] = graph.getRoadId(sc.parentRoad[curr]);
+        return new ArrayList<>(Arrays.asList(path));
+    }
+
+    /**
+     * Per-thread search state: distances and parents stamped with a query
+     * generation (so nothing is cleared between queries) and an indexed heap.
+     */
+    private static class Scratch {
+        private static final ThreadLocal<Scratch> LOCAL = new ThreadLocal<>();
+
+        final double[] dist;
+        final int[] parentRoad;
+        final int[] reached;
+        final int[] closed;
+        final IndexedMinHeap heap;
+        int generation;
+
+        static Scratch get(int n) {
+            Scratch sc = LOCAL.get();
+            if (sc == null || sc.dist.length < n) {
+                sc = new Scratch(n);
+                LOCAL.set(sc);
+            }
+            if (++sc.generation == 0) {
+                Arrays.fill(sc.reached, 0);
+                Arrays.fill(sc.closed, 0);
+                sc.generation = 1;
+            }
+            sc.heap.clear();
+            return sc;
         }
 
-        return path;
-    }
+        Scratch(int n) {
+            dist = new double[n];
+            parentRoad = new int[n];
+            reached = new int[n];
+            closed = new int[n];
+            heap = new IndexedMinHeap(n);
+        }
+
+        boolean isReached(int v) {
+            return reached[v] == generation;
+        }
 
-    private static class Node {
-        String id;
-        double distance;
+        boolean isClosed(int v) {
+            return closed[v] == generation;
+        }
 
-        Node(String id, double distance) {
-            this.id = id;
-            this.distance = distance;
+        void reach(int v, double d, int road) {
+            reached[v] = generation;
+            dist[v] = d;
+            parentRoad[v] = road;
         }
-    }
 
-    private static String findNextIntersection(Map<String, Intersection> intersections, RoadSegment road) {
-        for (Intersection inter : intersections.values()) {
-            if (inter.getIncomingRoads().contains(road)) {
-                return inter.getId();
-            }
+        void push(int v, double k) {
+            heap.push(v, k);
+        }
+
+        int pop() {
+            int v = heap.pop();
+            closed[v] = generation;
+            return v;
         }
-        return null;
     }
 }
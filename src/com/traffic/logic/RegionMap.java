@@ -0,0 +1,109 @@
+package com.traffic.logic;
+
+import com.traffic.model.Intersection;
+import com.traffic.model.RoadSegment;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Partition of the road network into regions, each simulated by its own
+ * container. Every road belongs to exactly one region; a border road shares an
+ * intersection with roads of other regions, and vehicles on it are mirrored to
+ * those regions as ghosts. The assignment only depends on the map, so every
+ * process that builds the same map computes the same partition.
+ */
+public class RegionMap {
+    private final int regionCount;
+    private final Map<String, Integer> regionOfRoad = new HashMap<>();
+    private final Map<String, Set<Integer>> neighboursOfRoad = new HashMap<>();
+    private final List<Set<Integer>> neighboursOfRegion = new ArrayList<>();
+
+    /**
+     * Splits the map into {@code regionCount} vertical strips of equal width by
+     * the x coordinate of each road's start.
+     */
+    public static RegionMap byStrips(Map<String, Intersection> intersections, Map<String, RoadSegment> roads,
+            int regionCount) {
+        double minX = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        for (RoadSegment road : roads.values()) {
+            minX = Math.min(minX, road.getStart().getX());
+            maxX = Math.max(maxX, road.getStart().getX());
+        }
+        double width = Math.max(1e-9, maxX - minX);
+        Map<String, Integer> assignment = new HashMap<>();
+        for (RoadSegment road : roads.values()) {
+            int strip = (int) ((road.getStart().getX() - minX) / width * regionCount);
+            assignment.put(road.getId(), Math.min(regionCount - 1, strip));
+        }
+        return new RegionMap(intersections, assignment, regionCount);
+    }
+
+    public RegionMap(Map<String, Intersection> intersections, Map<String, Integer> assignment, int regionCount) {
+        this.regionCount = regionCount;
+        this.regionOfRoad.putAll(assignment);
+        for (int i = 0; i < regionCount; i++)
+            neighboursOfRegion.add(new HashSet<>());
+
+        for (Intersection inter : intersections.values()) {
+            List<RoadSegment> touching = new ArrayList<>(inter.getIncomingRoads());
+            touching.addAll(inter.getOutgoingRoads());
+            Set<Integer> present = new HashSet<>();
+            for (RoadSegment road : touching)
+                present.add(regionOf(road.getId()));
+            present.remove(-1);
+            if (present.size() < 2)
+                continue;
+            for (RoadSegment road : touching) {
+                int own = regionOf(road.getId());
+                if (own < 0)
+                    continue;
+                for (int other : present) {
+                    if (other != own) {
+                        neighboursOfRoad.computeIfAbsent(road.getId(), k -> new HashSet<>()).add(other);
+                        neighboursOfRegion.get(own).add(other);
+                    }
+                }
+            }
+        }
+    }
+
+    public int getRegionCount() {
+        return regionCount;
+    }
+
+    /**
+     * Region owning the road, or -1 if the road is unknown.
+     */
+    public int getRegion(String roadId) {
+        return regionOf(roadId);
+    }
+
+    private int regionOf(String roadId) {
+        Integer region = regionOfRoad.get(roadId);
+        return region == null ? -1 : region;
+    }
+
+    public boolean isBorderRoad(String roadId) {
+        return neighboursOfRoad.containsKey(roadId);
+    }
+
+    /**
+     * Other regions that need ghosts of vehicles on this road.
+     */
+    public Set<Integer> getNeighbourRegions(String roadId) {
+        return neighboursOfRoad.getOrDefault(roadId, Collections.emptySet());
+    }
+
+    /**
+     * Regions sharing at least one intersection with the given region.
+     */
+    public Set<Integer> getNeighbourRegions(int region) {
+        return Collections.unmodifiableSet(neighboursOfRegion.get(region));
+    }
+}
@@ -0,0 +1,222 @@
+package com.traffic.logic;
+
+import com.traffic.model.Intersection;
+import com.traffic.model.RoadSegment;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled, read-only view of the road network with dense int IDs.
+ * Intersections are nodes and roads are directed edges; adjacency is stored in
+ * CSR form (offset + target arrays) and every road knows the intersection it
+ * leaves from and the one it leads into.
+ */
+public class RoadGraph {
+    private final String[] intersectionIds;
+    private final Intersection[] intersections;
+    private final Map<String, Integer> intersectionIndex;
+    private final String[] roadIds;
+    private final RoadSegment[] roads;
+    private final Map<String, Integer> roadIndex;
+
+    private final int[] upstream;
+    private final int[] downstream;
+    private final double[] lengths;
+    private final double[] xs;
+    private final double[] ys;
+    private final double detourFactor;
+
+    private final int[] outOffsets;
+    private final int[] outRoads;
+    private final int[] inOffsets;
+    private final int[] inRoads;
+
+    /**
+     * Compiles the graph. When {@code roadOrder} is given, road indices follow it
+     * (so they line up with indices handed out elsewhere); otherwise they follow
+     * the iteration order of {@code roads}.
+     */
+    public static RoadGraph build(Map<String, Intersection> intersections, Map<String, RoadSegment> roads,
+            List<String> roadOrder) {
+        return new RoadGraph(intersections, roads, roadOrder != null ? roadOrder : new ArrayList<>(roads.keySet()));
+    }
+
+    private RoadGraph(Map<String, Intersection> interMap, Map<String, RoadSegment> roadMap, List<String> roadOrder) {
+        int interCount = interMap.size();
+        intersectionIds = new String[interCount];
+        intersections = new Intersection[interCount];
+        intersectionIndex = new HashMap<>(interCount * 2);
+        int n = 0;
+        for (Intersection inter : interMap.values()) {
+            intersectionIds[n] = inter.getId();
+            intersections[n] = inter;
+            intersectionIndex.put(inter.getId(), n);
+            n++;
+        }
+
+        int roadCount = roadOrder.size();
+        roadIds = roadOrder.toArray(new String[0]);
+        roads = new RoadSegment[roadCount];
+        roadIndex = new HashMap<>(roadCount * 2);
+        lengths = new double[roadCount];
+        for (int r = 0; r < roadCount; r++) {
+            roadIndex.put(roadIds[r], r);
+            roads[r] = roadMap.get(roadIds[r]);
+            if (roads[r] != null)
+                lengths[r] = roads[r].getLength();
+        }
+
+        upstream = new int[roadCount];
+        downstream = new int[roadCount];
+        Arrays.fill(upstream, -1);
+        Arrays.fill(downstream, -1);
+
+        outOffsets = new int[interCount + 1];
+        inOffsets = new int[interCount + 1];
+        List<Integer> outList = new ArrayList<>();
+        List<Integer> inList = new ArrayList<>();
+        for (int i = 0; i < interCount; i++) {
+            outOffsets[i] = outList.size();
+            for (RoadSegment road : intersections[i].getOutgoingRoads()) {
+                Integer r = roadIndex.get(road.getId());
+                if (r == null)
+                    continue;
+                outList.add(r);
+                if (upstream[r] < 0)
+                    upstream[r] = i;
+            }
+            inOffsets[i] = inList.size();
+            for (RoadSegment road : intersections[i].getIncomingRoads()) {
+                Integer r = roadIndex.get(road.getId());
+                if (r == null)
+                    continue;
+                inList.add(r);
+                if (downstream[r] < 0)
+                    downstream[r] = i;
+            }
+        }
+        outOffsets[interCount] = outList.size();
+        inOffsets[interCount] = inList.size();
+        outRoads = outList.stream().mapToInt(Integer::intValue).toArray();
+        inRoads = inList.stream().mapToInt(Integer::intValue).toArray();
+
+        xs = new double[interCount];
+        ys = new double[interCount];
+        for (int i = 0; i < interCount; i++) {
+            xs[i] = intersections[i].getPosition().getX();
+            ys[i] = intersections[i].getPosition().getY();
+        }
+        double factor = Double.MAX_VALUE;
+        for (int r = 0; r < roadCount; r++) {
+            if (upstream[r] < 0 || downstream[r] < 0)
+                continue;
+            double chord = distance(upstream[r], downstream[r]);
+            if (chord > 1e-9)
+                factor = Math.min(factor, lengths[r] / chord);
+        }
+        detourFactor = factor == Double.MAX_VALUE ? 0.0 : factor;
+    }
+
+    public int getIntersectionCount() {
+        return intersectionIds.length;
+    }
+
+    public int getRoadCount() {
+        return roadIds.length;
+    }
+
+    public int getIntersectionIndex(String intersectionId) {
+        Integer i = intersectionIndex.get(intersectionId);
+        return i == null ? -1 : i;
+    }
+
+    public int getRoadIndex(String roadId) {
+        Integer r = roadIndex.get(roadId);
+        return r == null ? -1 : r;
+    }
+
+    public String getIntersectionId(int i) {
+        return intersectionIds[i];
+    }
+
+    public Intersection getIntersection(int i) {
+        return intersections[i];
+    }
+
+    public String getRoadId(int r) {
+        return roadIds[r];
+    }
+
+    public RoadSegment getRoad(int r) {
+        return roads[r];
+    }
+
+    public double getLength(int r) {
+        return lengths[r];
+    }
+
+    /**
+     * Intersection the road leads into, or -1 if it leaves the network.
+     */
+    public int getDownstream(int r) {
+        return downstream[r];
+    }
+
+    /**
+     * Intersection the road leaves from, or -1 if it is a network entry.
+     */
+    public int getUpstream(int r) {
+        return upstream[r];
+    }
+
+    /**
+     * Straight-line distance between two intersections.
+     */
+    public double distance(int i, int j) {
+        return Math.hypot(xs[i] - xs[j], ys[i] - ys[j]);
+    }
+
+    /**
+     * Smallest ratio of road length to straight-line distance between its ends,
+     * so {@code distance(i, j) * getDetourFactor()} never overestimates the length
+     * of a route from i to j.
+     */
+    public double getDetourFactor() {
+        return detourFactor;
+    }
+
+    public Intersection getDownstreamIntersection(String roadId) {
+        int r = getRoadIndex(roadId);
+        if (r < 0 || downstream[r] < 0)
+            return null;
+        return intersections[downstream[r]];
+    }
+
+    // CSR adjacency: outgoing roads of i are outRoad(k) for k in [outStart(i), outEnd(i))
+    public int outStart(int i) {
+        return outOffsets[i];
+    }
+
+    public int outEnd(int i) {
+        return outOffsets[i + 1];
+    }
+
+    public int outRoad(int k) {
+        return outRoads[k];
+    }
+
+    public int inStart(int i) {
+        return inOffsets[i];
+    }
+
+    public int inEnd(int i) {
+        return inOffsets[i + 1];
+    }
+
+    public int inRoad(int k) {
+        return inRoads[k];
+    }
+}
@@ -0,0 +1,81 @@
+package com.traffic.logic;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of routes keyed by (start intersection, destination). Each
+ * route remembers the congestion epoch it was computed in and is only served
+ * while that epoch is current, so vehicles rerouting together share one search
+ * until the weights move noticeably.
+ */
+public class RouteCache {
+    private final int capacity;
+    private final Map<String, Entry> entries;
+    private long hits;
+    private long misses;
+
+    private static class Entry {
+        final long epoch;
+        final List<String> route;
+
+        Entry(long epoch, List<String> route) {
+            this.epoch = epoch;
+            this.route = route;
+        }
+    }
+
+    public RouteCache(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > RouteCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Copy of the cached route, or null if there is none for this epoch.
+     */
+    public synchronized List<String> get(String startInterId, String endInterId, long epoch) {
+        Entry entry = entries.get(key(startInterId, endInterId));
+        if (entry == null || entry.epoch != epoch) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return new ArrayList<>(entry.route);
+    }
+
+    public synchronized void put(String startInterId, String endInterId, long epoch, List<String> route) {
+        entries.put(key(startInterId, endInterId), new Entry(epoch, new ArrayList<>(route)));
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    private static String key(String startInterId, String endInterId) {
+        return startInterId + '>' + endInterId;
+    }
+}
@@ -0,0 +1,71 @@
+package com.traffic.model;
+
+/**
+ * Allocation-free geometry kernels on raw coordinates. Hot paths compare
+ * squared distances against squared radii instead of taking square roots, and
+ * write results into caller-owned {@link Position}s.
+ */
+public final class Geometry {
+    private Geometry() {
+    }
+
+    public static double distanceSquared(double x1, double y1, double x2, double y2) {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        return dx * dx + dy * dy;
+    }
+
+    public static double distanceSquared(double x1, double y1, double z1, double x2, double y2, double z2) {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        double dz = z2 - z1;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    public static boolean within(double x1, double y1, double x2, double y2, double radius) {
+        return distanceSquared(x1, y1, x2, y2) <= radius * radius;
+    }
+
+    public static boolean within(double x1, double y1, double z1, double x2, double y2, double z2, double radius) {
+        return distanceSquared(x1, y1, z1, x2, y2, z2) <= radius * radius;
+    }
+
+    /**
+     * Parameter in [0, 1] of the point on segment A-B closest to P.
+     */
+    public static double projectOntoSegment(double px, double py, double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double lenSq = dx * dx + dy * dy;
+        if (lenSq <= 0)
+            return 0;
+        double t = ((px - ax) * dx + (py - ay) * dy) / lenSq;
+        return Math.max(0, Math.min(1, t));
+    }
+
+    public static double pointSegmentDistanceSquared(double px, double py, double ax, double ay, double bx,
+            double by) {
+        double t = projectOntoSegment(px, py, ax, ay, bx, by);
+        return distanceSquared(px, py, ax + (bx - ax) * t, ay + (by - ay) * t);
+    }
+
+    /**
+     * Writes {@code a + (b - a) * t} into {@code out} (2D) and returns it.
+     */
+    public static Position lerpInto(Position a, Position b, double t, Position out) {
+        out.setX(a.getX() + (b.getX() - a.getX()) * t);
+        out.setY(a.getY() + (b.getY() - a.getY()) * t);
+        return out;
+    }
+
+    /**
+     * Writes the point {@code offset} units to the left of heading {@code angle}
+     * at (x, y) into {@code out} and returns it. Used for lane offsets.
+     */
+    public static Position offsetInto(double x, double y, double angle, double offset, Position out) {
+        double perpAngle = angle + Math.PI / 2.0;
+        out.setX(x + Math.cos(perpAngle) * offset);
+        out.setY(y + Math.sin(perpAngle) * offset);
+        return out;
+    }
+}
@@ -59,8 +59,35 @@ public class Position {
         this.lane = lane;
     }
 
+    public void set(double x, double y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    public void set(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
     public double distanceTo(Position other) {
-        return Math.sqrt(Math.pow(x - other.x, 2) + Math.pow(y - other.y, 2) + Math.pow(z - other.z, 2));
+        return Math.sqrt(distanceSquaredTo(other));
+    }
+
+    public double distanceSquaredTo(Position other) {
+        return Geometry.distanceSquared(x, y, z, other.x, other.y, other.z);
+    }
+
+    public double distance2DTo(Position other) {
+        return Math.sqrt(Geometry.distanceSquared(x, y, other.x, other.y));
+    }
+
+    public boolean isWithin(Position other, double radius) {
+        return distanceSquaredTo(other) <= radius * radius;
+    }
+
+    public boolean isWithin2D(Position other, double radius) {
+        return Geometry.within(x, y, other.x, other.y, radius);
     }
 
     @Override
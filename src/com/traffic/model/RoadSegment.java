@@ -13,6 +13,68 @@ public class RoadSegment {
     private boolean isCurved = false;
     private boolean isCircular = false;
     private boolean isYieldTarget = false; // For roundabout yielding
+    private RoadGeometry geometry;
+
+    private static final int ARC_LENGTH_SAMPLES = 32;
+
+    /**
+     * Shape data derived once from the control points: length, arc-length table
+     * for Bezier segments and the angles/radius of circular arcs.
+     */
+    private static final class RoadGeometry {
+        final double length;
+        final double angle;
+        final double[] arcLengths; // cumulative length at t = i / ARC_LENGTH_SAMPLES, null if uniform
+        final boolean isArc;
+        final double arcStartAngle;
+        final double arcSweep;
+        final double arcRadius;
+
+        RoadGeometry(RoadSegment road) {
+            Position start = road.start;
+            Position end = road.end;
+            angle = Math.atan2(end.getY() - start.getY(), end.getX() - start.getX());
+
+            isArc = road.isCircular && road.circularCenter != null;
+            if (isArc) {
+                Position c = road.circularCenter;
+                arcStartAngle = Math.atan2(start.getY() - c.getY(), start.getX() - c.getX());
+                double endAngle = Math.atan2(end.getY() - c.getY(), end.getX() - c.getX());
+                // Handle wrap-around for circular arcs
+                double diff = endAngle - arcStartAngle;
+                if (diff > Math.PI)
+                    diff -= 2 * Math.PI;
+                if (diff < -Math.PI)
+                    diff += 2 * Math.PI;
+                arcSweep = diff;
+                arcRadius = start.distanceTo(c);
+                length = Math.abs(arcSweep) * arcRadius;
+                arcLengths = null;
+            } else if (road.isCurved) {
+                arcStartAngle = 0;
+                arcSweep = 0;
+                arcRadius = 0;
+                arcLengths = new double[ARC_LENGTH_SAMPLES + 1];
+                Position prev = new Position(start.getX(), start.getY());
+                Position current = new Position(0, 0);
+                for (int i = 1; i <= ARC_LENGTH_SAMPLES; i++) {
+                    double t = (double) i / ARC_LENGTH_SAMPLES;
+                    double u = 1 - t;
+                    current.setX(u * u * start.getX() + 2 * u * t * road.controlPoint.getX() + t * t * end.getX());
+                    current.setY(u * u * start.getY() + 2 * u * t * road.controlPoint.getY() + t * t * end.getY());
+                    arcLengths[i] = arcLengths[i - 1] + prev.distance2DTo(current);
+                    prev.set(current.getX(), current.getY());
+                }
+                length = arcLengths[ARC_LENGTH_SAMPLES];
+            } else {
+                arcStartAngle = 0;
+                arcSweep = 0;
+                arcRadius = 0;
+                arcLengths = null;
+                length = start.distanceTo(end);
+            }
+        }
+    }
 
     public RoadSegment(String id, Position start, Position end, int lanes, double speedLimit, boolean isOneWay) {
         this.id = id;
@@ -21,6 +83,7 @@ public class RoadSegment {
         this.lanes = lanes;
         this.speedLimit = speedLimit;
         this.isOneWay = isOneWay;
+        this.geometry = new RoadGeometry(this);
     }
 
     public RoadSegment(String id, Position start, Position end, Position controlPoint, int lanes, double speedLimit,
@@ -28,6 +91,7 @@ public class RoadSegment {
         this(id, start, end, lanes, speedLimit, isOneWay);
         this.controlPoint = controlPoint;
         this.isCurved = (controlPoint != null);
+        this.geometry = new RoadGeometry(this);
     }
 
     public String getId() {
@@ -64,67 +128,72 @@ public class RoadSegment {
     }
 
     public double getLength() {
-        if (!isCurved)
-            return start.distanceTo(end);
-        // Approximation for Bezier length (midpoint sampling)
-        double length = 0;
-        Position prev = start;
-        for (int i = 1; i <= 10; i++) {
-            Position current = getPointAt(i / 10.0);
-            length += prev.distanceTo(current);
-            prev = current;
+        return geometry.length;
+    }
+
+    /**
+     * Maps a distance along the road to the curve parameter t, so that equal
+     * steps in distance give evenly spaced points even on Bezier segments.
+     */
+    public double getParameterAtDistance(double distance) {
+        RoadGeometry g = geometry;
+        if (g.length <= 0)
+            return 0;
+        if (distance <= 0)
+            return 0;
+        if (distance >= g.length)
+            return 1;
+        if (g.arcLengths == null)
+            return distance / g.length;
+
+        double[] lut = g.arcLengths;
+        int lo = 0;
+        int hi = lut.length - 1;
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            if (lut[mid] <= distance)
+                lo = mid;
+            else
+                hi = mid;
         }
-        return length;
+        double span = lut[hi] - lut[lo];
+        double frac = span > 0 ? (distance - lut[lo]) / span : 0;
+        return (lo + frac) / (lut.length - 1);
     }
 
     public Position getPointAt(double t) {
-        if (isCircular && circularCenter != null) {
-            double startAngle = Math.atan2(start.getY() - circularCenter.getY(), start.getX() - circularCenter.getX());
-            double endAngle = Math.atan2(end.getY() - circularCenter.getY(), end.getX() - circularCenter.getX());
-
-            // Handle wrap-around for circular arcs
-            double diff = endAngle - startAngle;
-            if (diff > Math.PI)
-                diff -= 2 * Math.PI;
-            if (diff < -Math.PI)
-                diff += 2 * Math.PI;
-
-            double currentAngle = startAngle + diff * t;
-            double radius = start.distanceTo(circularCenter);
-            return new Position(
-                    circularCenter.getX() + Math.cos(currentAngle) * radius,
-                    circularCenter.getY() + Math.sin(currentAngle) * radius);
-        }
-        if (!isCurved) {
-            return new Position(
-                    start.getX() + (end.getX() - start.getX()) * t,
-                    start.getY() + (end.getY() - start.getY()) * t);
+        return getPointAt(t, new Position(0, 0));
+    }
+
+    /**
+     * Evaluates the curve at t into {@code out} (x and y only) and returns it.
+     */
+    public Position getPointAt(double t, Position out) {
+        RoadGeometry g = geometry;
+        if (g.isArc) {
+            double currentAngle = g.arcStartAngle + g.arcSweep * t;
+            out.setX(circularCenter.getX() + Math.cos(currentAngle) * g.arcRadius);
+            out.setY(circularCenter.getY() + Math.sin(currentAngle) * g.arcRadius);
+            return out;
         }
+        if (!isCurved)
+            return Geometry.lerpInto(start, end, t, out);
         // B(t) = (1-t)^2 * P0 + 2(1-t)t * P1 + t^2 * P2
-        double x = Math.pow(1 - t, 2) * start.getX() + 2 * (1 - t) * t * controlPoint.getX()
-                + Math.pow(t, 2) * end.getX();
-        double y = Math.pow(1 - t, 2) * start.getY() + 2 * (1 - t) * t * controlPoint.getY()
-                + Math.pow(t, 2) * end.getY();
-        return new Position(x, y);
+        double u = 1 - t;
+        out.setX(u * u * start.getX() + 2 * u * t * controlPoint.getX() + t * t * end.getX());
+        out.setY(u * u * start.getY() + 2 * u * t * controlPoint.getY() + t * t * end.getY());
+        return out;
     }
 
     public double getAngleAt(double t) {
-        if (isCircular && circularCenter != null) {
-            Position pos = getPointAt(t);
-            double angleToCenter = Math.atan2(pos.getY() - circularCenter.getY(), pos.getX() - circularCenter.getX());
+        RoadGeometry g = geometry;
+        if (g.isArc) {
             // Tangent is perpendicular to radius (checking direction of arc)
-            double startAngle = Math.atan2(start.getY() - circularCenter.getY(), start.getX() - circularCenter.getX());
-            double endAngle = Math.atan2(end.getY() - circularCenter.getY(), end.getX() - circularCenter.getX());
-            double diff = endAngle - startAngle;
-            if (diff > Math.PI)
-                diff -= 2 * Math.PI;
-            if (diff < -Math.PI)
-                diff += 2 * Math.PI;
-
-            return (diff > 0) ? angleToCenter + Math.PI / 2 : angleToCenter - Math.PI / 2;
+            double angleToCenter = g.arcStartAngle + g.arcSweep * t;
+            return (g.arcSweep > 0) ? angleToCenter + Math.PI / 2 : angleToCenter - Math.PI / 2;
         }
         if (!isCurved)
-            return getAngle();
+            return g.angle;
         // Derivative B'(t) = 2(1-t)(P1-P0) + 2t(P2-P1)
         double dx = 2 * (1 - t) * (controlPoint.getX() - start.getX()) + 2 * t * (end.getX() - controlPoint.getX());
         double dy = 2 * (1 - t) * (controlPoint.getY() - start.getY()) + 2 * t * (end.getY() - controlPoint.getY());
@@ -132,13 +201,14 @@ public class RoadSegment {
     }
 
     public double getAngle() {
-        return Math.atan2(end.getY() - start.getY(), end.getX() - start.getX());
+        return geometry.angle;
     }
 
     public void setCircular(Position center) {
         this.circularCenter = center;
         this.isCircular = (center != null);
         this.isCurved = isCircular;
+        this.geometry = new RoadGeometry(this);
     }
 
     public boolean isCurved() {
@@ -0,0 +1,23 @@
+package com.traffic.model;
+
+/**
+ * Typed message exchanged between agents in the same JVM without ACL
+ * serialization. {@link Type#name()} doubles as the ACL content when an event
+ * has to fall back to JADE messaging.
+ */
+public class TrafficEvent {
+    public enum Type {
+        HAZARD_AHEAD, // an incident blocks the recipient's route
+        PRIORITY_PASS // an emergency vehicle asks a light for green
+    }
+
+    public final Type type;
+    public final String sender;
+    public final String roadId; // road the event concerns, may be null
+
+    public TrafficEvent(Type type, String sender, String roadId) {
+        this.type = type;
+        this.sender = sender;
+        this.roadId = roadId;
+    }
+}
@@ -0,0 +1,140 @@
+package com.traffic.logic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.traffic.model.Intersection;
+import com.traffic.model.Position;
+import com.traffic.model.RoadSegment;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class DestinationTreeServiceTest {
+    private static final int SIZE = 12;
+
+    @Test
+    void repairMatchesFreshBuildAfterRandomWeightChanges() {
+        Random random = new Random(7);
+        RoadGraph graph = grid(random);
+        DestinationTreeService service = new DestinationTreeService(4);
+        double[] w = baseWeights(graph, random);
+
+        for (int destination : new int[] { 0, graph.getIntersectionCount() / 2 + 3 }) {
+            DestinationTreeService.Tree tree = new DestinationTreeService.Tree(graph, destination);
+            service.build(tree, w);
+            for (int round = 0; round < 40; round++) {
+                w = w.clone();
+                for (int r = 0; r < w.length; r++) {
+                    double p = random.nextDouble();
+                    if (p < 0.01)
+                        w[r] = w[r] == Double.POSITIVE_INFINITY ? graph.getLength(r) : Double.POSITIVE_INFINITY;
+                    else if (w[r] == Double.POSITIVE_INFINITY)
+                        continue;
+                    else if (p < 0.06)
+                        w[r] *= 1.0 + 3.0 * random.nextDouble(); // heavier
+                    else if (p < 0.11)
+                        w[r] = Math.max(graph.getLength(r), w[r] * random.nextDouble()); // lighter
+                }
+                service.repair(tree, w);
+
+                DestinationTreeService.Tree fresh = new DestinationTreeService.Tree(graph, destination);
+                service.build(fresh, w);
+                assertSameTree(fresh, tree, w, "destination " + destination + ", round " + round);
+            }
+        }
+    }
+
+    @Test
+    void hierarchyBuildMatchesDijkstra() {
+        Random random = new Random(11);
+        RoadGraph graph = grid(random);
+        DestinationTreeService service = new DestinationTreeService(4);
+        ContractionHierarchy ch = ContractionHierarchy.build(graph);
+        double[] w = baseWeights(graph, random);
+        ch.customize(w, 1);
+
+        for (int destination = 0; destination < graph.getIntersectionCount(); destination += 7) {
+            DestinationTreeService.Tree fromHierarchy = new DestinationTreeService.Tree(graph, destination);
+            assertTrue(service.build(fromHierarchy, ch));
+            DestinationTreeService.Tree fresh = new DestinationTreeService.Tree(graph, destination);
+            service.build(fresh, w);
+            assertSameTree(fresh, fromHierarchy, w, "destination " + destination);
+        }
+    }
+
+    /**
+     * Same distances everywhere, and every next road lies on a shortest path
+     * (ties may pick different roads).
+     */
+    private static void assertSameTree(DestinationTreeService.Tree expected, DestinationTreeService.Tree actual,
+            double[] w, String where) {
+        RoadGraph graph = expected.graph;
+        for (int x = 0; x < graph.getIntersectionCount(); x++) {
+            double d = expected.dist[x];
+            if (d == Double.POSITIVE_INFINITY) {
+                assertEquals(d, actual.dist[x], where + ", intersection " + x);
+                assertEquals(-1, actual.nextRoad[x], where + ", intersection " + x);
+                continue;
+            }
+            assertEquals(d, actual.dist[x], 1e-9 * Math.max(1.0, d), where + ", intersection " + x);
+            int road = actual.nextRoad[x];
+            if (x == expected.destination) {
+                assertEquals(-1, road, where);
+                continue;
+            }
+            assertTrue(road >= 0 && graph.getUpstream(road) == x, where + ", intersection " + x);
+            double via = w[road] + expected.dist[graph.getDownstream(road)];
+            assertEquals(d, via, 1e-9 * Math.max(1.0, d), where + ", intersection " + x);
+        }
+    }
+
+    /**
+     * Grid with two-way streets, some missing and some doubled, and a few curved
+     * roads.
+     */
+    private static RoadGraph grid(Random random) {
+        Map<String, Intersection> intersections = new LinkedHashMap<>();
+        Map<String, RoadSegment> roads = new LinkedHashMap<>();
+        Intersection[][] nodes = new Intersection[SIZE][SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            for (int j = 0; j < SIZE; j++) {
+                nodes[i][j] = new Intersection("I" + i + "_" + j, new Position(i * 100, j * 100));
+                intersections.put(nodes[i][j].getId(), nodes[i][j]);
+            }
+        }
+        int[][] steps = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
+        for (int i = 0; i < SIZE; i++) {
+            for (int j = 0; j < SIZE; j++) {
+                for (int[] step : steps) {
+                    int x = i + step[0];
+                    int y = j + step[1];
+                    if (x < 0 || y < 0 || x >= SIZE || y >= SIZE || random.nextDouble() < 0.15)
+                        continue;
+                    int parallel = random.nextDouble() < 0.1 ? 2 : 1;
+                    for (int k = 0; k < parallel; k++) {
+                        Position from = nodes[i][j].getPosition();
+                        Position to = nodes[x][y].getPosition();
+                        String id = "R" + roads.size();
+                        RoadSegment road = random.nextDouble() < 0.3
+                                ? new RoadSegment(id, from, to, new Position((i + x) * 50 + random.nextInt(60) - 30,
+                                        (j + y) * 50 + random.nextInt(60) - 30), 2, 50, true)
+                                : new RoadSegment(id, from, to, 2, 50, true);
+                        roads.put(id, road);
+                        nodes[i][j].addOutgoing(road);
+                        nodes[x][y].addIncoming(road);
+                    }
+                }
+            }
+        }
+        return RoadGraph.build(intersections, roads, null);
+    }
+
+    private static double[] baseWeights(RoadGraph graph, Random random) {
+        double[] w = new double[graph.getRoadCount()];
+        for (int r = 0; r < w.length; r++)
+            w[r] = graph.getLength(r) * (1.0 + 2.0 * random.nextDouble());
+        return w;
+    }
+}